@@ -0,0 +1,169 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.DeviceBackendApplication;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import jakarta.persistence.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Inserts per second of {@code saveAll} through Hibernate, with the application's settings (JDBC batches of 50,
+ * ordered inserts). {@code pooled-lo} saves real {@link Renovation}s and {@link User}s through their repositories,
+ * so ids come from the sequences in blocks of {@code allocationSize}. {@code identity} saves copies of the same
+ * columns whose ids are identity columns, which is how both entities were mapped before: every INSERT has to
+ * return its key, so Hibernate sends them one at a time.
+ * <p>
+ * Runs against in-memory H2, so it only measures the per-statement overhead; over a network the identity
+ * variant additionally pays one round trip per row. Other allocation sizes: {@code -p allocationSize=200}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(IdGenerationInsertBenchmark.ROWS)
+public class IdGenerationInsertBenchmark {
+    static final int ROWS = 1000;
+
+    @Param({"renovations", "users"})
+    private String table;
+
+    @Param({"identity", "pooled-lo"})
+    private String generation;
+
+    @Param({"50"})
+    private int allocationSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private Runnable saveAll;
+    private int row;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DeviceBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:insert-benchmark;DB_CLOSE_DELAY=-1",
+                        "ids.allocation-size=" + allocationSize,
+                        "logging.level.root=WARN"
+                )
+                .run();
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        JpaRepositoryFactory identityRepositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class))
+        );
+        saveAll = switch (table + "/" + generation) {
+            case "renovations/pooled-lo" -> saveAll(context.getBean(RenovationRepository.class), this::renovation);
+            case "users/pooled-lo" -> saveAll(context.getBean(UserRepository.class), this::user);
+            case "renovations/identity" -> saveAll(
+                    identityRepositories.getRepository(IdentityRenovationRepository.class), this::identityRenovation
+            );
+            case "users/identity" -> saveAll(identityRepositories.getRepository(IdentityUserRepository.class), this::identityUser);
+            default -> throw new IllegalArgumentException(table + "/" + generation);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void saveAll() {
+        saveAll.run();
+    }
+
+    private <T> Runnable saveAll(JpaRepository<T, Long> repository, IntFunction<T> entity) {
+        return () -> transactionTemplate.executeWithoutResult(status -> {
+            List<T> entities = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                entities.add(entity.apply(row++));
+            }
+            repository.saveAll(entities);
+        });
+    }
+
+    private Renovation renovation(int n) {
+        Renovation renovation = new Renovation();
+        renovation.setDescription("Replaced battery " + n);
+        renovation.setRenovationDate(LocalDate.of(2025, 1, 1));
+        return renovation;
+    }
+
+    private IdentityRenovation identityRenovation(int n) {
+        IdentityRenovation renovation = new IdentityRenovation();
+        renovation.description = "Replaced battery " + n;
+        renovation.renovationDate = LocalDate.of(2025, 1, 1);
+        return renovation;
+    }
+
+    private User user(int n) {
+        return User.builder()
+                .fullName("User " + n)
+                .address("Varna")
+                .phone("08" + n)
+                .email("user" + n + "@abv.bg")
+                .password("encoded")
+                .role(UserRole.USER)
+                .build();
+    }
+
+    private IdentityUser identityUser(int n) {
+        IdentityUser user = new IdentityUser();
+        user.fullName = "User " + n;
+        user.address = "Varna";
+        user.phone = "08" + n;
+        user.email = "user" + n + "@abv.bg";
+        user.password = "encoded";
+        user.role = UserRole.USER;
+        return user;
+    }
+
+    @Entity
+    @Table(name = "identity_renovations")
+    public static class IdentityRenovation {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String description;
+        LocalDate renovationDate;
+        String deviceSerialNumber;
+    }
+
+    @Entity
+    @Table(name = "identity_users")
+    public static class IdentityUser {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String fullName;
+        String address;
+        String phone;
+        String email;
+        String password;
+        @Enumerated(EnumType.STRING)
+        UserRole role;
+    }
+
+    public interface IdentityRenovationRepository extends JpaRepository<IdentityRenovation, Long> {
+    }
+
+    public interface IdentityUserRepository extends JpaRepository<IdentityUser, Long> {
+    }
+}
@@ -0,0 +1,32 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerialNumberParserBenchmark {
+    private static final String PREFIX = "DEV-AB";
+
+    @Param({"DEV-AB1048576", "DEV-ABX1048576"})
+    private String serialId;
+
+    @Benchmark
+    public void splitAndParseInt(Blackhole blackhole) {
+        int serialNumber;
+        try {
+            serialNumber = Integer.parseInt(serialId.split(PREFIX)[1]);
+        } catch (NumberFormatException e) {
+            serialNumber = -1;
+        }
+        blackhole.consume(serialNumber);
+    }
+
+    @Benchmark
+    public void serialNumberParser(Blackhole blackhole) {
+        blackhole.consume(SerialNumberParser.parse(serialId, PREFIX));
+    }
+}
@@ -0,0 +1,118 @@
+package bg.tuvarna.devicebackend;
+
+import bg.tuvarna.devicebackend.config.DatabasePlatform;
+import bg.tuvarna.devicebackend.models.entities.IdSequences;
+import bg.tuvarna.devicebackend.services.RenovationSearchService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Schema objects that Hibernate's ddl-auto cannot express. Every statement is idempotent and
+ * runs once the entity tables exist; on other databases (H2 in tests) nothing is applied.
+ * Most objects only speed things up, so a failing statement is logged and skipped, but the application
+ * refuses to start without {@value #SERIAL_RANGE_CONSTRAINT}: it is what keeps passport ranges disjoint
+ * across instances.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class PostgresSchemaSetup {
+    public static final String SERIAL_RANGE_CONSTRAINT = "passports_serial_range_excl";
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresSchemaSetup.class);
+
+    private static final List<String> STATEMENTS = List.of(
+            "CREATE EXTENSION IF NOT EXISTS btree_gist",
+            """
+            DO $$
+            BEGIN
+                IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = '%1$s') THEN
+                    ALTER TABLE passports ADD CONSTRAINT %1$s EXCLUDE USING gist (
+                        serial_prefix WITH =,
+                        int4range(from_serial_number, to_serial_number, '[]') WITH &&
+                    );
+                END IF;
+            END $$
+            """.formatted(SERIAL_RANGE_CONSTRAINT),
+            """
+            CREATE OR REPLACE FUNCTION notify_passport_catalog() RETURNS trigger AS $$
+            BEGIN
+                IF TG_OP = 'DELETE' THEN
+                    PERFORM pg_notify('passport_catalog', 'delete:' || OLD.id);
+                    RETURN OLD;
+                END IF;
+                PERFORM pg_notify('passport_catalog', 'upsert:' || NEW.id);
+                RETURN NEW;
+            END;
+            $$ LANGUAGE plpgsql
+            """,
+            "DROP TRIGGER IF EXISTS passports_catalog_notify ON passports",
+            """
+            CREATE TRIGGER passports_catalog_notify
+                AFTER INSERT OR UPDATE OR DELETE ON passports
+                FOR EACH ROW EXECUTE FUNCTION notify_passport_catalog()
+            """,
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS devices_serial_number_trgm ON devices USING gin (lower(serial_number) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS users_full_name_trgm ON users USING gin (lower(full_name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS users_address_trgm ON users USING gin (lower(address) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS users_email_trgm ON users USING gin (lower(email) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS users_phone_trgm ON users USING gin (lower(phone) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS passports_name_trgm ON passports USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS passports_model_trgm ON passports USING gin (lower(model) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS renovations_description_fts ON renovations USING gin (" +
+                    RenovationSearchService.DESCRIPTION_VECTOR.formatted("description") + ")",
+            alignSequence("passports", IdSequences.PASSPORTS),
+            alignSequence("renovations", IdSequences.RENOVATIONS),
+            alignSequence("users", IdSequences.USERS),
+            alignSequence("warranty_reminders", IdSequences.WARRANTY_REMINDERS)
+    );
+
+    /**
+     * Moves the id sequence past the ids already in the table, which matters once after switching a table from
+     * identity columns to the sequence. It only ever moves the sequence forward, so running it again is a no-op.
+     * The block size is read from the sequence itself, so it follows {@code ids.allocation-size}.
+     */
+    private static String alignSequence(String table, String sequence) {
+        return """
+                SELECT setval('%2$s', t.next_id, false)
+                FROM (SELECT COALESCE(MAX(id), 0) + 1 AS next_id FROM %1$s) t, pg_sequences s
+                WHERE s.schemaname = 'public' AND s.sequencename = '%2$s'
+                AND t.next_id > COALESCE(s.last_value + s.increment_by, s.start_value)
+                """.formatted(table, sequence);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+
+    @PostConstruct
+    public void apply() {
+        if (!databasePlatform.isPostgres()) {
+            return;
+        }
+
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                logger.warn("Could not apply schema statement: {}", e.getMostSpecificCause().getMessage());
+            }
+        }
+
+        Integer constraints = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_constraint WHERE conname = ?", Integer.class, SERIAL_RANGE_CONSTRAINT
+        );
+        if (constraints == null || constraints == 0) {
+            throw new IllegalStateException("Constraint " + SERIAL_RANGE_CONSTRAINT + " is missing; " +
+                    "remove the overlapping passports so that it can be created");
+        }
+    }
+}
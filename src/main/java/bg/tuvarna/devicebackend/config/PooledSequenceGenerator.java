@@ -0,0 +1,43 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.models.entities.IdSequences;
+import bg.tuvarna.devicebackend.models.entities.PooledSequence;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+/**
+ * Sequence generator whose allocation size comes from the {@value #ALLOCATION_SIZE_SETTING} Hibernate setting
+ * ({@code ids.allocation-size} in the application properties) instead of a compile-time constant. The optimizer
+ * is still chosen by {@code hibernate.id.optimizer.pooled.preferred}.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final String ALLOCATION_SIZE_SETTING = "devicebackend.id.allocation_size";
+
+    private final String sequenceName;
+
+    public PooledSequenceGenerator(PooledSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequenceName = config.value();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        int allocationSize = serviceRegistry.requireService(ConfigurationService.class).getSetting(
+                ALLOCATION_SIZE_SETTING, StandardConverters.INTEGER, IdSequences.DEFAULT_ALLOCATION_SIZE
+        );
+        if (allocationSize < 1) {
+            throw new MappingException("Invalid id allocation size: " + allocationSize);
+        }
+
+        parameters.setProperty(SEQUENCE_PARAM, sequenceName);
+        parameters.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
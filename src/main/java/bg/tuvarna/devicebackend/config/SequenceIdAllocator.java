@@ -0,0 +1,43 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.models.entities.IdSequences;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids for rows inserted with plain JDBC. They are taken from the entity's sequence in blocks of the
+ * configured allocation size, exactly like Hibernate's pooled-lo optimizer, so they never collide with
+ * ids Hibernate hands out.
+ */
+@Component
+public class SequenceIdAllocator {
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+    private final int allocationSize;
+
+    public SequenceIdAllocator(
+            JdbcTemplate jdbcTemplate,
+            DatabasePlatform databasePlatform,
+            @Value("${ids.allocation-size:" + IdSequences.DEFAULT_ALLOCATION_SIZE + "}") int allocationSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databasePlatform = databasePlatform;
+        this.allocationSize = allocationSize;
+    }
+
+    public long[] allocate(String sequence, int count) {
+        String sql = databasePlatform.isPostgres()
+                ? "SELECT nextval('" + sequence + "')"
+                : "SELECT NEXT VALUE FOR " + sequence;
+
+        long[] ids = new long[count];
+        for (int block = 0; block < count; block += allocationSize) {
+            long lo = jdbcTemplate.queryForObject(sql, Long.class);
+            for (int i = block; i < Math.min(count, block + allocationSize); i++) {
+                ids[i] = lo + i - block;
+            }
+        }
+        return ids;
+    }
+}
@@ -1,12 +1,25 @@
 package bg.tuvarna.devicebackend.controllers;
 
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
 import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.CacheStatsVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import bg.tuvarna.devicebackend.models.dtos.ImportResultVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.DeviceSortField;
+import bg.tuvarna.devicebackend.services.DeviceExportService;
+import bg.tuvarna.devicebackend.services.DeviceImportService;
 import bg.tuvarna.devicebackend.services.DeviceService;
+import bg.tuvarna.devicebackend.services.DeviceSummaryCache;
+import bg.tuvarna.devicebackend.services.RenovationService;
 import bg.tuvarna.devicebackend.utils.CustomPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,16 +29,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/devices")
 @AllArgsConstructor
 public class DeviceController {
     private final DeviceService deviceService;
+    private final DeviceImportService deviceImportService;
+    private final DeviceExportService deviceExportService;
+    private final DeviceSummaryCache deviceSummaryCache;
+    private final RenovationService renovationService;
 
     @Operation(
             description = "Return device by id for logged in user.",
@@ -34,7 +56,7 @@ public class DeviceController {
     @GetMapping("/{id}")
     @SecurityRequirement(name = "bearerAuth")
     public DeviceVO findDevice(@PathVariable String id) {
-        return new DeviceVO(deviceService.findDevice(id));
+        return renovationService.toDeviceVO(deviceService.findDevice(id));
     }
 
     @Operation(
@@ -53,8 +75,18 @@ public class DeviceController {
             )
     })
     @GetMapping("/exists/{id}")
-    public ResponseEntity<DeviceVO> isDeviceExists(@PathVariable String id) {
-        return ResponseEntity.ok(new DeviceVO(deviceService.isDeviceExists(id)));
+    public ResponseEntity<DeviceSummaryVO> isDeviceExists(@PathVariable String id) {
+        return ResponseEntity.ok(deviceService.getDeviceSummary(id));
+    }
+
+    @Operation(
+            description = "Hit, miss and eviction counters of the device existence check cache.",
+            summary = "Get existence check cache statistics"
+    )
+    @GetMapping("/summaryCache/stats")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CacheStatsVO> getSummaryCacheStats() {
+        return ResponseEntity.ok(deviceSummaryCache.stats());
     }
 
     @Operation(
@@ -88,23 +120,98 @@ public class DeviceController {
                                 .buildAndExpand(saved.getSerialNumber())
                                 .toUri()
                 )
-                .body(new DeviceVO(saved));
+                .body(renovationService.toDeviceVO(saved));
     }
 
     @Operation(
             summary = "Returns devices.",
-            description = "Returns devices based on search."
+            description = "Returns devices based on search. Pass after (empty for the first page, then the previous " +
+                    "nextCursor) to page by keyset ordered by sortBy; the total is only counted when withTotal is set."
     )
     @GetMapping
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<CustomPage<Device>> getDevices(
+    public ResponseEntity<CustomPage<DeviceListingVO>> getDevices(
             @RequestParam(required = false) String searchBy,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "SERIAL_NUMBER") DeviceSortField sortBy,
+            @RequestParam(defaultValue = "false") boolean withTotal
     ) {
+        if (after != null) {
+            return ResponseEntity.ok(deviceService.getDevicesAfter(searchBy, sortBy, after, size, withTotal));
+        }
+
         return ResponseEntity.ok(deviceService.getDevices(searchBy, page, size));
     }
 
+    @Operation(
+            description = "Renovation history of a device, newest first. Pass the nextCursor of the previous page " +
+                    "as after to get the next one.",
+            summary = "Get device renovations"
+    )
+    @GetMapping("/{serialNumber}/renovations")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CustomPage<RenovationVO>> getRenovations(
+            @PathVariable String serialNumber,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(renovationService.getHistory(serialNumber, after, size));
+    }
+
+    @Operation(
+            description = "Devices whose warranty expires within the next days days, ordered by expiration date. " +
+                    "Pass the nextCursor of the previous page as after to get the next one; the total is only " +
+                    "counted when withTotal is set.",
+            summary = "Get devices with expiring warranty"
+    )
+    @GetMapping("/expiringWarranties")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CustomPage<ExpiringWarrantyVO>> getExpiringWarranties(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal
+    ) {
+        return ResponseEntity.ok(deviceService.getExpiringWarranties(days, after, size, withTotal));
+    }
+
+    @Operation(
+            description = "Stream all devices matching searchBy as NDJSON (format=ndjson, default) or CSV (format=csv), " +
+                    "ordered by serial number.",
+            summary = "Export devices"
+    )
+    @GetMapping("/export")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> exportDevices(
+            @RequestParam(required = false) String searchBy,
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        boolean csv = switch (format) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new CustomException("Unsupported export format: " + format, ErrorCode.Validation);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=devices." + format)
+                .body(out -> deviceExportService.export(searchBy, csv, out));
+    }
+
+    @Operation(
+            description = "Register many devices without an owner. Every item gets its own status " +
+                    "(CREATED, INVALID, NOT_FOUND for serials outside every passport or ALREADY_EXISTS); " +
+                    "row is the 1-based position of the item in the request. At most 10000 items per request.",
+            summary = "Bulk register anonymous devices"
+    )
+    @PostMapping("/bulk")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<ImportResultVO>> addDevices(@RequestBody List<DeviceCreateVO> devices) {
+        return ResponseEntity.ok(deviceImportService.importDevices(devices));
+    }
+
     @Operation(
             description = "Register device for logged in user.",
             summary = "Register device for logged in user"
@@ -140,7 +247,7 @@ public class DeviceController {
                                 .buildAndExpand(saved.getSerialNumber())
                                 .toUri()
                 )
-                .body(new DeviceVO(saved));
+                .body(new DeviceVO(saved, 0, null));
     }
 
     @Operation(
@@ -166,7 +273,7 @@ public class DeviceController {
             @PathVariable String serialNumber,
             @RequestBody @Valid DeviceUpdateVO device
     ) {
-        return ResponseEntity.ok(new DeviceVO(deviceService.updateDevice(serialNumber, device)));
+        return ResponseEntity.ok(renovationService.toDeviceVO(deviceService.updateDevice(serialNumber, device)));
     }
 
     @Operation(
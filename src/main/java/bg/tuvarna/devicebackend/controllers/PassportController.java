@@ -1,8 +1,13 @@
 package bg.tuvarna.devicebackend.controllers;
 
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
 import bg.tuvarna.devicebackend.models.dtos.*;
 import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.services.PassportImportService;
 import bg.tuvarna.devicebackend.services.PassportService;
+import bg.tuvarna.devicebackend.services.SerialRegistry;
+import bg.tuvarna.devicebackend.services.WarrantyRecalculationService;
 import bg.tuvarna.devicebackend.utils.CustomPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,15 +17,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.InputStream;
+import java.util.List;
+
 @RestController
 @RequestMapping("api/v1/passports")
 @AllArgsConstructor
 public class PassportController {
     private final PassportService passportService;
+    private final PassportImportService passportImportService;
+    private final WarrantyRecalculationService warrantyRecalculationService;
+    private final SerialRegistry serialRegistry;
 
     @Operation(
             description = "Create passport",
@@ -52,6 +64,23 @@ public class PassportController {
                 .body(new PassportVO(saved));
     }
 
+    @Operation(
+            description = "Import passports from a CSV (name,model,serialPrefix,warrantyMonths,fromSerialNumber,toSerialNumber) " +
+                    "or NDJSON body. Rows are checked for overlaps with each other and with existing passports.",
+            summary = "Import passports"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Result of every imported row")
+    })
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<ImportResultVO>> importPassports(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        return ResponseEntity.ok(passportImportService.importPassports(body, contentType.startsWith("text/csv")));
+    }
+
     @Operation(
             description = "Update passport",
             summary = "Update passport"
@@ -77,15 +106,56 @@ public class PassportController {
     }
 
     @Operation(
-            description = "Get passports",
+            description = "Progress of the device warranty recalculation started by the last warranty change of a passport",
+            summary = "Get warranty recalculation progress"
+    )
+    @GetMapping("/{id}/warrantyRecalculation")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<WarrantyRecalculationVO> getWarrantyRecalculation(@PathVariable Long id) {
+        return ResponseEntity.ok(warrantyRecalculationService.getProgress(id));
+    }
+
+    @Operation(
+            description = "Registered and unregistered unit counts of the passport's serial range",
+            summary = "Get passport utilization"
+    )
+    @GetMapping("/{id}/utilization")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<PassportUtilizationVO> getUtilization(@PathVariable Long id) {
+        return ResponseEntity.ok(serialRegistry.getUtilization(id));
+    }
+
+    @Operation(
+            description = "Serial numbers of the passport's range without a registered device, in ascending order. " +
+                    "Pass the nextCursor of the previous page as after to get the next one.",
+            summary = "Get unregistered units"
+    )
+    @GetMapping("/{id}/unregistered")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CustomPage<String>> getUnregistered(
+            @PathVariable Long id,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        return ResponseEntity.ok(serialRegistry.getUnregistered(id, after, size));
+    }
+
+    @Operation(
+            description = "Get passports ordered by id. Pass the nextCursor of the previous response as after " +
+                    "(an empty after starts from the beginning) to page by keyset instead of by page number",
             summary = "Get passports"
     )
     @GetMapping
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<CustomPage<Passport>> getPassports(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after
     ) {
+        if (after != null) {
+            return ResponseEntity.ok(passportService.getPassportsAfter(after, size));
+        }
+
         return ResponseEntity.ok(passportService.getPassports(page, size));
     }
 
@@ -105,8 +175,43 @@ public class PassportController {
             description = "Get passport by serialId",
             summary = "Get passport by serialId"
     )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Passport found",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PassportForSerialNumberVO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "No passport covers the serial id",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
     @GetMapping("/getBySerialId/{serialId}")
-    public ResponseEntity<PassportForSerialNumberVO> getPassportForSerialId(@PathVariable String serialId) {
-        return ResponseEntity.ok(new PassportForSerialNumberVO(passportService.findPassportBySerialId(serialId)));
+    public ResponseEntity<?> getPassportForSerialId(@PathVariable String serialId) {
+        Passport passport = passportService.findPassportForSerialId(serialId);
+
+        if (passport == null) {
+            return ResponseEntity.badRequest().body(
+                    new ErrorResponse("Passport not found for serial number: " + serialId, ErrorCode.Failed)
+            );
+        }
+
+        return ResponseEntity.ok(new PassportForSerialNumberVO(passport));
+    }
+
+    @Operation(
+            description = "Resolve passports for many serial ids at once. Unknown serial ids are returned with found=false.",
+            summary = "Get passports by serialIds"
+    )
+    @PostMapping("/getBySerialIds")
+    public ResponseEntity<List<PassportLookupResultVO>> getPassportsForSerialIds(@RequestBody @Valid PassportLookupVO lookup) {
+        return ResponseEntity.ok(passportService.findPassportsBySerialIds(lookup.serialIds()));
     }
 }
\ No newline at end of file
@@ -2,9 +2,17 @@ package bg.tuvarna.devicebackend.controllers;
 
 import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationImportVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationRateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationSearchVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationVO;
+import bg.tuvarna.devicebackend.models.dtos.RollupBackfillVO;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.services.RenovationImportService;
+import bg.tuvarna.devicebackend.services.RenovationRollupService;
+import bg.tuvarna.devicebackend.services.RenovationSearchService;
 import bg.tuvarna.devicebackend.services.RenovationService;
+import bg.tuvarna.devicebackend.utils.CustomPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,15 +21,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.InputStream;
+import java.time.YearMonth;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/renovations")
 @AllArgsConstructor
 public class RenovationController {
     private final RenovationService renovationService;
+    private final RenovationImportService renovationImportService;
+    private final RenovationRollupService renovationRollupService;
+    private final RenovationSearchService renovationSearchService;
 
     @Operation(
             description = "Add renovation for device",
@@ -51,6 +67,84 @@ public class RenovationController {
                                 .buildAndExpand(saved.getId())
                                 .toUri()
                 )
-                .body(new RenovationVO(saved));
+                .body(new RenovationVO(
+                        saved.getId(),
+                        saved.getDescription(),
+                        saved.getRenovationDate(),
+                        renovationService.toDeviceVO(saved.getDevice())
+                ));
+    }
+
+    @Operation(
+            description = "Add many renovations from a JSON array or NDJSON body. Rows are numbered from 1; " +
+                    "invalid rows and rows for unregistered devices are reported, all others are created. " +
+                    "If the body becomes unreadable, the rows before it are still created and stoppedAtRow " +
+                    "names the row to resend from.",
+            summary = "Add renovations in bulk"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Created count and the failed rows")
+    })
+    @PostMapping(value = "/bulk", consumes = {"application/json", "application/x-ndjson"})
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<RenovationImportVO> saveRenovations(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        return ResponseEntity.ok(renovationImportService.importRenovations(body, contentType.startsWith("application/x-ndjson")));
+    }
+
+    @Operation(
+            description = "Renovations per registered device for every passport and month between from and to " +
+                    "(yyyy-MM, the last twelve months by default), optionally of one model only",
+            summary = "Get renovation rates"
+    )
+    @GetMapping("/analytics")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<RenovationRateVO>> getRenovationRates(
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to,
+            @RequestParam(required = false) String model
+    ) {
+        YearMonth end = to == null ? YearMonth.now() : to;
+        YearMonth start = from == null ? end.minusMonths(11) : from;
+        return ResponseEntity.ok(renovationRollupService.getRates(start, end, model));
+    }
+
+    @Operation(
+            description = "Rebuild the monthly renovation counts from all renovations in the background",
+            summary = "Start renovation rollup backfill"
+    )
+    @PostMapping("/analytics/backfill")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> startBackfill() {
+        renovationRollupService.backfill();
+        return ResponseEntity.accepted().build();
+    }
+
+    @Operation(
+            description = "State of the last renovation rollup backfill",
+            summary = "Get renovation rollup backfill"
+    )
+    @GetMapping("/analytics/backfill")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<RollupBackfillVO> getBackfill() {
+        return ResponseEntity.ok(renovationRollupService.getBackfill());
+    }
+
+    @Operation(
+            description = "Renovations whose description matches the query, best match first, with the device's " +
+                    "warranty and passport. Pass the nextCursor of the previous page as after to get the next one; " +
+                    "no totals are computed.",
+            summary = "Search renovations"
+    )
+    @GetMapping("/search")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CustomPage<RenovationSearchVO>> searchRenovations(
+            @RequestParam String query,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(renovationSearchService.search(query, after, size));
     }
-}
\ No newline at end of file
+}
@@ -21,4 +21,8 @@ public final class ErrorResponse {
     public ErrorResponse(CustomException ex) {
         this(ex.getMessage(), ex.getErrorCode().getCode(), LocalDateTime.now(), ErrorType.ERROR, ex.getArguments());
     }
+
+    public ErrorResponse(String error, ErrorCode errorCode) {
+        this(error, errorCode.getCode(), LocalDateTime.now(), ErrorType.ERROR, new String[0]);
+    }
 }
\ No newline at end of file
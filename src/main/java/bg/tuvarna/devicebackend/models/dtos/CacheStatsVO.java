@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+public record CacheStatsVO(
+        long hits,
+        long misses,
+        long evictions,
+        int size,
+        double hitRate
+) {
+}
@@ -0,0 +1,15 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+
+public record DeviceSearchRow(
+        String serialNumber,
+        Long passportId,
+        Long userId,
+        UserRole userRole,
+        String fullName,
+        String address,
+        String email,
+        String phone
+) {
+}
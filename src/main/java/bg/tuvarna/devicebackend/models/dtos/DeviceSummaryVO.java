@@ -0,0 +1,15 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.LocalDate;
+
+public record DeviceSummaryVO(
+        String serialNumber,
+        LocalDate purchaseDate,
+        LocalDate warrantyExpirationDate,
+        String comment,
+        String passportName,
+        String passportModel,
+        Integer passportWarrantyMonths,
+        Long renovationCount
+) {
+}
@@ -1,10 +1,14 @@
 package bg.tuvarna.devicebackend.models.dtos;
 
 import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
 
 import java.time.LocalDate;
-import java.util.List;
 
+/**
+ * A device. The renovation count and latest renovation are only filled in where a single device is returned
+ * (see {@code RenovationService.toDeviceVO}); devices nested in other responses leave them null.
+ */
 public record DeviceVO(
         String serialNumber,
         LocalDate purchaseDate,
@@ -12,29 +16,36 @@ public record DeviceVO(
         String comment,
         UserVO user,
         PassportVO passport,
-        List<RenovationVO> renovations
+        Long renovationCount,
+        RenovationVO latestRenovation
 ) {
     public DeviceVO(Device device) {
+        this(device, true);
+    }
+
+    public DeviceVO(Device device, boolean loadUser) {
         this(
                 device.getSerialNumber(),
                 device.getPurchaseDate(),
                 device.getWarrantyExpirationDate(),
                 device.getComment(),
-                device.getUser() != null ? new UserVO(device.getUser(), false) : null,
+                loadUser && device.getUser() != null ? new UserVO(device.getUser(), false) : null,
                 new PassportVO(device.getPassport()),
-                device.getRenovations().stream().map(RenovationVO::new).toList()
+                null,
+                null
         );
     }
 
-    public DeviceVO(Device device, boolean loadUser) {
+    public DeviceVO(Device device, long renovationCount, Renovation latestRenovation) {
         this(
                 device.getSerialNumber(),
                 device.getPurchaseDate(),
                 device.getWarrantyExpirationDate(),
                 device.getComment(),
-                loadUser && device.getUser() != null ? new UserVO(device.getUser(), false) : null,
+                device.getUser() != null ? new UserVO(device.getUser(), false) : null,
                 new PassportVO(device.getPassport()),
-                device.getRenovations().stream().map(RenovationVO::new).toList()
+                renovationCount,
+                latestRenovation != null ? new RenovationVO(latestRenovation, false) : null
         );
     }
-}
\ No newline at end of file
+}
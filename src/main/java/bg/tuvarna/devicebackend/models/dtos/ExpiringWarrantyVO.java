@@ -0,0 +1,14 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.LocalDate;
+
+public record ExpiringWarrantyVO(
+        String serialNumber,
+        LocalDate warrantyExpirationDate,
+        Long userId,
+        String ownerName,
+        String ownerEmail,
+        String passportName,
+        String passportModel
+) {
+}
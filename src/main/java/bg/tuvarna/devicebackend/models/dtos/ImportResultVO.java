@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.enums.ImportStatus;
+
+public record ImportResultVO(
+        int row,
+        ImportStatus status,
+        String message
+) {
+    public ImportResultVO(int row, ImportStatus status) {
+        this(row, status, null);
+    }
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record PassportLookupVO(
+        @NotEmpty(message = "Serial ids are required")
+        @Size(max = 5000, message = "At most 5000 serial ids can be resolved at once")
+        List<String> serialIds
+) {
+}
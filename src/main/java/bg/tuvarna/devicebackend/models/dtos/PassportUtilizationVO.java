@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+public record PassportUtilizationVO(
+        Long passportId,
+        long rangeSize,
+        long registered,
+        long unregistered,
+        double utilization
+) {
+}
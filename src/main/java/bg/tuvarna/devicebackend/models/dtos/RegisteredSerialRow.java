@@ -0,0 +1,7 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+public record RegisteredSerialRow(
+        Long passportId,
+        String serialNumber
+) {
+}
@@ -0,0 +1,11 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.util.List;
+
+public record RenovationImportVO(
+        int rows,
+        int created,
+        List<ImportResultVO> failures,
+        Integer stoppedAtRow
+) {
+}
@@ -0,0 +1,14 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.YearMonth;
+
+public record RenovationRateVO(
+        Long passportId,
+        String passportName,
+        String passportModel,
+        YearMonth month,
+        long renovations,
+        long devices,
+        double renovationsPerDevice
+) {
+}
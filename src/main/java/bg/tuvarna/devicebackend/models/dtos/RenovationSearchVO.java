@@ -0,0 +1,15 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.LocalDate;
+
+public record RenovationSearchVO(
+        Long id,
+        String description,
+        LocalDate renovationDate,
+        float rank,
+        String serialNumber,
+        LocalDate warrantyExpirationDate,
+        String passportName,
+        String passportModel
+) {
+}
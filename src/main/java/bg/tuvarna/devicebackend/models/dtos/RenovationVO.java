@@ -11,11 +11,15 @@ public record RenovationVO(
         DeviceVO device
 ) {
     public RenovationVO(Renovation renovation){
+        this(renovation, true);
+    }
+
+    public RenovationVO(Renovation renovation, boolean loadDevice) {
         this(
                 renovation.getId(),
                 renovation.getDescription(),
                 renovation.getRenovationDate(),
-                new DeviceVO(renovation.getDevice())
+                loadDevice ? new DeviceVO(renovation.getDevice()) : null
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.enums.JobStatus;
+
+import java.time.LocalDateTime;
+
+public record RollupBackfillVO(
+        JobStatus status,
+        long rows,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+    public RollupBackfillVO finish(JobStatus status, long rows) {
+        return new RollupBackfillVO(status, rows, startedAt, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+public record UserSearchRow(
+        Long id,
+        String fullName,
+        String address,
+        String email,
+        String phone
+) {
+}
@@ -0,0 +1,34 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.enums.JobStatus;
+
+import java.time.LocalDateTime;
+
+public record WarrantyRecalculationVO(
+        long jobId,
+        Long passportId,
+        int warrantyMonths,
+        JobStatus status,
+        int processedPurchaseDates,
+        int totalPurchaseDates,
+        long updatedDevices,
+        LocalDateTime startedAt
+) {
+    public WarrantyRecalculationVO planned(int totalPurchaseDates) {
+        return new WarrantyRecalculationVO(
+                jobId, passportId, warrantyMonths, status, processedPurchaseDates, totalPurchaseDates, updatedDevices, startedAt
+        );
+    }
+
+    public WarrantyRecalculationVO progress(int processedPurchaseDates, long updatedDevices) {
+        return new WarrantyRecalculationVO(
+                jobId, passportId, warrantyMonths, status, processedPurchaseDates, totalPurchaseDates, updatedDevices, startedAt
+        );
+    }
+
+    public WarrantyRecalculationVO finish(JobStatus status) {
+        return new WarrantyRecalculationVO(
+                jobId, passportId, warrantyMonths, status, processedPurchaseDates, totalPurchaseDates, updatedDevices, startedAt
+        );
+    }
+}
@@ -10,7 +10,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "devices", schema = "public")
+@Table(name = "devices", schema = "public", indexes = {
+        @Index(name = "devices_user_id_idx", columnList = "user_id"),
+        @Index(name = "devices_passport_id_idx", columnList = "passport_id"),
+        @Index(name = "devices_passport_purchase_idx", columnList = "passport_id, purchase_date, serial_number"),
+        @Index(name = "devices_warranty_expiration_idx", columnList = "warranty_expiration_date, serial_number")
+})
 @Getter
 @Setter
 public class Device {
@@ -30,7 +35,7 @@ public class Device {
     @JoinColumn(name = "passport_id")
     private Passport passport;
 
-    @OneToMany(mappedBy = "device", orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "device", orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JsonIgnore
     private List<Renovation> renovations = new ArrayList<>();
-
 }
\ No newline at end of file
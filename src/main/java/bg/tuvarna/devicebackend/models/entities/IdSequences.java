@@ -0,0 +1,22 @@
+package bg.tuvarna.devicebackend.models.entities;
+
+/**
+ * Sequences behind the generated ids. Hibernate takes {@code ids.allocation-size} ids (by default
+ * {@link #DEFAULT_ALLOCATION_SIZE}) per {@code nextval} and, with the pooled-lo optimizer, uses the returned value
+ * as the first id of the block, so ids are known before the INSERT and inserts can be batched. Code that inserts
+ * rows itself must allocate ids the same way, see {@link bg.tuvarna.devicebackend.config.SequenceIdAllocator}.
+ * <p>
+ * The sequences' INCREMENT BY must equal the allocation size; Hibernate refuses to start otherwise, so changing
+ * the setting on an existing database also needs {@code ALTER SEQUENCE ... INCREMENT BY}.
+ */
+public final class IdSequences {
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    public static final String PASSPORTS = "passports_seq";
+    public static final String RENOVATIONS = "renovations_seq";
+    public static final String USERS = "users_seq";
+    public static final String WARRANTY_REMINDERS = "warranty_reminders_seq";
+
+    private IdSequences() {
+    }
+}
@@ -1,10 +1,12 @@
 package bg.tuvarna.devicebackend.models.entities;
 
+import bg.tuvarna.devicebackend.services.PassportCatalogListener;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
 @Table(name = "passports", schema = "public")
+@EntityListeners(PassportCatalogListener.class)
 @Getter
 @Setter
 @Builder
@@ -12,7 +14,7 @@ import lombok.*;
 @NoArgsConstructor
 public class Passport {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(IdSequences.PASSPORTS)
     @Column(name = "id", nullable = false)
     private Long id;
     private String name;
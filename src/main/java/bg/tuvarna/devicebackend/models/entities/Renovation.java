@@ -8,12 +8,14 @@ import lombok.Setter;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "renovations", schema = "public")
+@Table(name = "renovations", schema = "public", indexes = {
+        @Index(name = "renovations_device_date_idx", columnList = "device_serial_number, renovation_date, id")
+})
 @Getter
 @Setter
 public class Renovation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(IdSequences.RENOVATIONS)
     @Column(name = "id", nullable = false)
     private Long id;
 
@@ -0,0 +1,39 @@
+package bg.tuvarna.devicebackend.models.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Number of renovations of the devices of one passport in one calendar month.
+ * Rows are only written through the upserts of {@code RenovationRollupService}.
+ */
+@Entity
+@Table(name = "renovation_monthly_counts", schema = "public")
+@IdClass(RenovationMonthlyCount.Key.class)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RenovationMonthlyCount {
+    @Id
+    @Column(name = "passport_id", nullable = false)
+    private Long passportId;
+
+    @Id
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(name = "renovations", nullable = false)
+    private long renovations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long passportId;
+        private LocalDate monthStart;
+    }
+}
@@ -20,7 +20,7 @@ import java.util.List;
 @Builder
 public class User implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(IdSequences.USERS)
     @Column(name = "id", nullable = false)
     private Long id;
     private String fullName;
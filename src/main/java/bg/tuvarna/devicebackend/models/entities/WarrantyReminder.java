@@ -0,0 +1,28 @@
+package bg.tuvarna.devicebackend.models.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "warranty_reminders", schema = "public", uniqueConstraints = {
+        @UniqueConstraint(name = "warranty_reminders_device_expiration_uk", columnNames = {"serial_number", "warranty_expiration_date"})
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class WarrantyReminder {
+    @Id
+    @PooledSequence(IdSequences.WARRANTY_REMINDERS)
+    @Column(name = "id", nullable = false)
+    private Long id;
+    private String serialNumber;
+    private LocalDate warrantyExpirationDate;
+    private Long userId;
+    private String ownerEmail;
+    private LocalDateTime createdAt;
+}
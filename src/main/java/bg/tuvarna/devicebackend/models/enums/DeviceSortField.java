@@ -0,0 +1,5 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+public enum DeviceSortField {
+    SERIAL_NUMBER, PURCHASE_DATE
+}
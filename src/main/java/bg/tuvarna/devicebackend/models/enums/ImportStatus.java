@@ -0,0 +1,5 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+public enum ImportStatus {
+    CREATED, INVALID, OVERLAP, ALREADY_EXISTS, NOT_FOUND
+}
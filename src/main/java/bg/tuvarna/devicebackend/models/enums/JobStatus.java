@@ -0,0 +1,5 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+public enum JobStatus {
+    RUNNING, COMPLETED, FAILED, SUPERSEDED
+}
@@ -16,6 +16,18 @@ public class PassportMapper {
                 .build();
     }
 
+    public static Passport copy(Passport passport) {
+        return Passport.builder()
+                .id(passport.getId())
+                .name(passport.getName())
+                .model(passport.getModel())
+                .serialPrefix(passport.getSerialPrefix())
+                .warrantyMonths(passport.getWarrantyMonths())
+                .fromSerialNumber(passport.getFromSerialNumber())
+                .toSerialNumber(passport.getToSerialNumber())
+                .build();
+    }
+
     public static void updateEntity(Passport passport, PassportUpdateVO passportUpdateVO) {
         if (passportUpdateVO.name() != null && !passportUpdateVO.name().isBlank()) {
             passport.setName(passportUpdateVO.name());
@@ -0,0 +1,11 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+
+public interface DeviceInsertRepository {
+    /**
+     * Inserts a new device without first checking whether its serial number exists. A duplicate fails on
+     * the primary key and surfaces as a {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    Device insert(Device device);
+}
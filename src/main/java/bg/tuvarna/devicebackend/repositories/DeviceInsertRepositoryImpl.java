@@ -0,0 +1,23 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * {@code save} merges entities with an assigned id, which SELECTs the row before inserting it. Persisting
+ * and flushing right away issues only the INSERT and lets the primary key reject concurrent duplicates.
+ */
+public class DeviceInsertRepositoryImpl implements DeviceInsertRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Device insert(Device device) {
+        entityManager.persist(device);
+        entityManager.flush();
+        return device;
+    }
+}
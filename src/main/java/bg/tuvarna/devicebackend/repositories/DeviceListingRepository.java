@@ -0,0 +1,18 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface DeviceListingRepository {
+    List<DeviceListingVO> findListing(Specification<Device> specification, Sort sort, int offset, int limit);
+
+    /**
+     * Forward-only stream of the same rows; must be consumed and closed inside a transaction.
+     */
+    Stream<DeviceListingVO> streamListing(Specification<Device> specification, Sort sort);
+}
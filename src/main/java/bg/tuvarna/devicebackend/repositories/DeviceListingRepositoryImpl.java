@@ -0,0 +1,76 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.models.entities.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Device listing rows built by one SELECT: the passport and owner columns come from left joins and the
+ * renovation count from a correlated subquery, so neither the EAGER renovations nor the owner are loaded.
+ */
+public class DeviceListingRepositoryImpl implements DeviceListingRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DeviceListingVO> findListing(Specification<Device> specification, Sort sort, int offset, int limit) {
+        return entityManager.createQuery(listingQuery(specification, sort))
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<DeviceListingVO> streamListing(Specification<Device> specification, Sort sort) {
+        return entityManager.createQuery(listingQuery(specification, sort))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private CriteriaQuery<DeviceListingVO> listingQuery(Specification<Device> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DeviceListingVO> query = cb.createQuery(DeviceListingVO.class);
+        Root<Device> device = query.from(Device.class);
+        Join<Device, Passport> passport = device.join("passport", JoinType.LEFT);
+        Join<Device, User> user = device.join("user", JoinType.LEFT);
+
+        Subquery<Long> renovationCount = query.subquery(Long.class);
+        Root<Renovation> renovation = renovationCount.from(Renovation.class);
+        renovationCount.select(cb.count(renovation)).where(cb.equal(renovation.get("device"), device));
+
+        query.select(cb.construct(
+                DeviceListingVO.class,
+                device.get("serialNumber"),
+                device.get("purchaseDate"),
+                device.get("warrantyExpirationDate"),
+                device.get("comment"),
+                passport.get("name"),
+                passport.get("model"),
+                user.get("fullName"),
+                renovationCount
+        ));
+
+        Predicate predicate = specification.toPredicate(device, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, device, cb));
+
+        return query;
+    }
+}
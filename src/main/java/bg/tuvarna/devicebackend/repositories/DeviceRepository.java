@@ -1,35 +1,118 @@
 package bg.tuvarna.devicebackend.repositories;
 
+import bg.tuvarna.devicebackend.models.dtos.DeviceSearchRow;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import bg.tuvarna.devicebackend.models.dtos.RegisteredSerialRow;
 import bg.tuvarna.devicebackend.models.entities.Device;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface DeviceRepository extends JpaRepository<Device, String> {
+public interface DeviceRepository extends JpaRepository<Device, String>, JpaSpecificationExecutor<Device>,
+        DeviceListingRepository, DeviceInsertRepository {
     @Transactional
     @Modifying
     @Query("delete from Device d where d.serialNumber = ?1")
     void deleteBySerialNumber(String serialNumber);
 
-    @Query("select distinct d from Device d " +
-            "left join d.user u " +
-            "left join d.passport p " +
-            "where (?1 is null OR ( ?1 is not null AND (lower(d.serialNumber) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(u.fullName) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(u.address) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(u.email) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(u.phone) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(p.name) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(p.model) LIKE concat('%',lower(?1),'%'))))")
-    Page<Device> findAll(String searchBy, Pageable pageable);
-
-    @Query("select distinct d from Device d " +
-            "left join d.user u " +
-            "left join d.passport p ")
-    Page<Device> getAllDevices(Pageable pageable);
-}
\ No newline at end of file
+    @Query("select d.passport.id from Device d where d.serialNumber = ?1")
+    Optional<Long> findPassportIdBySerialNumber(String serialNumber);
+
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO(" +
+            "d.serialNumber, d.purchaseDate, d.warrantyExpirationDate, d.comment, p.name, p.model, p.warrantyMonths, " +
+            "(select count(r) from Renovation r where r.device = d)) " +
+            "from Device d left join d.passport p where d.serialNumber = ?1")
+    Optional<DeviceSummaryVO> findSummary(String serialNumber);
+
+    @Query("select d.serialNumber from Device d where d.serialNumber in ?1")
+    List<String> findExistingSerialNumbers(Collection<String> serialNumbers);
+
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.RegisteredSerialRow(p.id, d.serialNumber) " +
+            "from Device d left join d.passport p where d.serialNumber in ?1")
+    List<RegisteredSerialRow> findPassportIdsBySerialNumbers(Collection<String> serialNumbers);
+
+    long countByPassportId(Long passportId);
+
+    @Query("select distinct d.purchaseDate from Device d " +
+            "where d.passport.id = ?1 and d.purchaseDate is not null " +
+            "order by d.purchaseDate")
+    List<LocalDate> findPurchaseDatesByPassportId(Long passportId);
+
+    @Query("select d.serialNumber from Device d " +
+            "where d.passport.id = ?1 and d.purchaseDate = ?2 and d.serialNumber > ?3 " +
+            "order by d.serialNumber")
+    List<String> findSerialNumbersByPurchaseDate(Long passportId, LocalDate purchaseDate, String afterSerialNumber, Limit limit);
+
+    /**
+     * Sets the warranty of the registered devices bought on {@code purchaseDate} with serial numbers in
+     * ({@code afterSerialNumber}, {@code lastSerialNumber}], but only while the passport still has
+     * {@code warrantyMonths}, so a recalculation for an outdated warranty writes nothing.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Device d set d.warrantyExpirationDate = ?6 " +
+            "where d.passport.id = ?1 and d.purchaseDate = ?2 " +
+            "and d.serialNumber > ?3 and d.serialNumber <= ?4 and d.user is not null " +
+            "and exists (select p.id from Passport p where p.id = ?1 and p.warrantyMonths = ?5)")
+    int updateWarrantyOfRegisteredDevices(Long passportId, LocalDate purchaseDate, String afterSerialNumber,
+                                          String lastSerialNumber, int warrantyMonths, LocalDate warrantyExpirationDate);
+
+    @Transactional
+    @Modifying
+    @Query("update Device d set d.warrantyExpirationDate = ?6 " +
+            "where d.passport.id = ?1 and d.purchaseDate = ?2 " +
+            "and d.serialNumber > ?3 and d.serialNumber <= ?4 and d.user is null " +
+            "and exists (select p.id from Passport p where p.id = ?1 and p.warrantyMonths = ?5)")
+    int updateWarrantyOfAnonymousDevices(Long passportId, LocalDate purchaseDate, String afterSerialNumber,
+                                         String lastSerialNumber, int warrantyMonths, LocalDate warrantyExpirationDate);
+
+    /**
+     * Devices whose warranty expires between {@code from} and {@code to}, ordered by expiration date and serial
+     * and starting after the given key, so callers walk the window in keyset chunks over the expiration index.
+     */
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO(" +
+            "d.serialNumber, d.warrantyExpirationDate, u.id, u.fullName, u.email, p.name, p.model) " +
+            "from Device d left join d.user u left join d.passport p " +
+            "where d.warrantyExpirationDate between ?1 and ?2 " +
+            "and (d.warrantyExpirationDate > ?3 or (d.warrantyExpirationDate = ?3 and d.serialNumber > ?4)) " +
+            "order by d.warrantyExpirationDate, d.serialNumber")
+    List<ExpiringWarrantyVO> findExpiringWarranties(
+            LocalDate from, LocalDate to, LocalDate afterDate, String afterSerialNumber, Limit limit
+    );
+
+    long countByWarrantyExpirationDateBetween(LocalDate from, LocalDate to);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.DeviceSearchRow(" +
+            "d.serialNumber, d.passport.id, u.id, u.role, u.fullName, u.address, u.email, u.phone) " +
+            "from Device d left join d.user u")
+    Stream<DeviceSearchRow> streamSearchRows();
+
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.DeviceSearchRow(" +
+            "d.serialNumber, d.passport.id, u.id, u.role, u.fullName, u.address, u.email, u.phone) " +
+            "from Device d join d.user u where u.id = ?1")
+    List<DeviceSearchRow> findSearchRowsByUserId(Long userId);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.RegisteredSerialRow(d.passport.id, d.serialNumber) " +
+            "from Device d where d.passport is not null")
+    Stream<RegisteredSerialRow> streamRegisteredSerials();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select d.serialNumber from Device d where d.passport.id = ?1")
+    Stream<String> streamSerialNumbersByPassportId(Long passportId);
+}
@@ -0,0 +1,84 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.User;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public final class DeviceSpecifications {
+    private DeviceSpecifications() {
+    }
+
+    /**
+     * Case-insensitive substring match on the serial number, the owner's name, address, email and phone, and the
+     * passport's name and model. Each table is filtered on its own and the device is matched by key, so every LIKE
+     * can use its trigram index. A null term adds no predicate.
+     */
+    public static Specification<Device> search(String searchBy) {
+        if (searchBy == null) {
+            return Specification.where(null);
+        }
+
+        String pattern = "%" + searchBy.toLowerCase() + "%";
+
+        return (root, query, cb) -> {
+            Subquery<Long> users = query.subquery(Long.class);
+            Root<User> user = users.from(User.class);
+            users.select(user.get("id")).where(cb.or(
+                    cb.like(cb.lower(user.get("fullName")), pattern),
+                    cb.like(cb.lower(user.get("address")), pattern),
+                    cb.like(cb.lower(user.get("email")), pattern),
+                    cb.like(cb.lower(user.get("phone")), pattern)
+            ));
+
+            Subquery<Long> passports = query.subquery(Long.class);
+            Root<Passport> passport = passports.from(Passport.class);
+            passports.select(passport.get("id")).where(cb.or(
+                    cb.like(cb.lower(passport.get("name")), pattern),
+                    cb.like(cb.lower(passport.get("model")), pattern)
+            ));
+
+            return cb.or(
+                    cb.like(cb.lower(root.get("serialNumber")), pattern),
+                    root.get("user").get("id").in(users),
+                    root.get("passport").get("id").in(passports)
+            );
+        };
+    }
+
+    public static Specification<Device> serialNumberIn(Collection<String> serialNumbers) {
+        return (root, query, cb) -> root.get("serialNumber").in(serialNumbers);
+    }
+
+    public static Specification<Device> serialNumberAfter(String serialNumber) {
+        if (serialNumber == null) {
+            return Specification.where(null);
+        }
+
+        return (root, query, cb) -> cb.greaterThan(root.get("serialNumber"), serialNumber);
+    }
+
+    public static Specification<Device> purchasedAfter(LocalDate purchaseDate, String serialNumber) {
+        if (purchaseDate == null) {
+            return (root, query, cb) -> cb.isNotNull(root.get("purchaseDate"));
+        }
+
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("purchaseDate"), purchaseDate),
+                cb.and(
+                        cb.equal(root.get("purchaseDate"), purchaseDate),
+                        cb.greaterThan(root.get("serialNumber"), serialNumber)
+                )
+        );
+    }
+
+    public static Specification<Device> withoutPurchaseDate() {
+        return (root, query, cb) -> cb.isNull(root.get("purchaseDate"));
+    }
+
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.RenovationMonthlyCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RenovationMonthlyCountRepository extends JpaRepository<RenovationMonthlyCount, RenovationMonthlyCount.Key> {
+    List<RenovationMonthlyCount> findByMonthStartBetweenOrderByMonthStartAscPassportIdAsc(LocalDate from, LocalDate to);
+}
@@ -1,9 +1,31 @@
 package bg.tuvarna.devicebackend.repositories;
 
 import bg.tuvarna.devicebackend.models.entities.Renovation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @Repository
 public interface RenovationRepository extends JpaRepository<Renovation, Long> {
-}
\ No newline at end of file
+    @Query("select r from Renovation r where r.device.serialNumber = ?1 and r.renovationDate is not null " +
+            "order by r.renovationDate desc, r.id desc")
+    List<Renovation> findDatedHistory(String serialNumber, Limit limit);
+
+    long countByDeviceSerialNumber(String serialNumber);
+
+    /**
+     * Dated renovations of a device that come after the given key in newest-first order.
+     */
+    @Query("select r from Renovation r where r.device.serialNumber = ?1 " +
+            "and (r.renovationDate < ?2 or (r.renovationDate = ?2 and r.id < ?3)) " +
+            "order by r.renovationDate desc, r.id desc")
+    List<Renovation> findDatedHistoryBefore(String serialNumber, LocalDate renovationDate, Long id, Limit limit);
+
+    @Query("select r from Renovation r where r.device.serialNumber = ?1 and r.renovationDate is null and r.id < ?2 " +
+            "order by r.id desc")
+    List<Renovation> findUndatedHistoryBefore(String serialNumber, Long id, Limit limit);
+}
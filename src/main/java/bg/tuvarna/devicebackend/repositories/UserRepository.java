@@ -1,13 +1,19 @@
 package bg.tuvarna.devicebackend.repositories;
 
+import bg.tuvarna.devicebackend.models.dtos.UserSearchRow;
 import bg.tuvarna.devicebackend.models.entities.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -18,16 +24,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     User getByPhone(String phone);
 
-    @Query("select distinct u from User u " +
-            "left join u.devices d " +
-            "left join d.passport p " +
-            "where u.role!='ADMIN' AND (?1 is null OR ( ?1 is not null AND lower(u.fullName) LIKE concat('%',lower(?1),'%') OR " +
+    @Query("select u from User u " +
+            "where u.role!='ADMIN' AND (?1 is null OR lower(u.fullName) LIKE concat('%',lower(?1),'%') OR " +
             "lower(u.address) LIKE concat('%',lower(?1),'%') OR " +
             "lower(u.email) LIKE concat('%',lower(?1),'%') OR " +
             "lower(u.phone) LIKE concat('%',lower(?1),'%') OR " +
+            "u.id in (select d.user.id from Device d where " +
+            "lower(d.serialNumber) LIKE concat('%',lower(?1),'%') OR " +
+            "d.passport.id in (select p.id from Passport p where " +
             "lower(p.name) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(p.model) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(d.serialNumber) LIKE concat('%',lower(?1),'%')))")
+            "lower(p.model) LIKE concat('%',lower(?1),'%'))))")
     Page<User> searchBy(String searchBy, Pageable pageable);
 
     @Query("select distinct u from User u " +
@@ -35,4 +41,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "left join d.passport p " +
             "where u.role!='ADMIN'")
     Page<User> getAllUsers(Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new bg.tuvarna.devicebackend.models.dtos.UserSearchRow(u.id, u.fullName, u.address, u.email, u.phone) " +
+            "from User u where u.role!='ADMIN'")
+    Stream<UserSearchRow> streamSearchRows();
+
+    @Query("select d.serialNumber from Device d where d.user.id = ?1")
+    List<String> findDeviceSerialNumbers(Long id);
 }
\ No newline at end of file
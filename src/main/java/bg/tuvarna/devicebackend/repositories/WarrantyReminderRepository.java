@@ -0,0 +1,16 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.WarrantyReminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WarrantyReminderRepository extends JpaRepository<WarrantyReminder, Long> {
+    List<WarrantyReminder> findBySerialNumberInAndWarrantyExpirationDateBetween(
+            Collection<String> serialNumbers, LocalDate from, LocalDate to
+    );
+}
@@ -0,0 +1,221 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceSearchRow;
+import bg.tuvarna.devicebackend.models.dtos.UserSearchRow;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import bg.tuvarna.devicebackend.utils.NGramIndex;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * In-memory alternative to the LIKE searches of {@link DeviceService#getDevices} and {@link UserService#getUsers}
+ * for databases without pg_trgm. Devices are indexed by serial number and owner fields, users by their own
+ * fields; passport name and model are matched against the {@link PassportCatalog} and expanded through the
+ * passport posting lists, so passport edits never require reindexing devices.
+ * <p>
+ * The index only sees writes made through this instance, so it is for single-node deployments: it stays
+ * disabled unless both {@code search.in-memory-index.enabled} and {@code search.in-memory-index.single-node}
+ * are set. Until the startup scan finishes
+ * {@link #isReady()} is false and callers keep using the database. Changes made during the scan are applied
+ * and also logged, and the log is replayed when the scan ends, so a row the scan read before a change
+ * cannot undo it.
+ */
+@Service
+@RequiredArgsConstructor
+public class AdminSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AdminSearchIndex.class);
+    private static final long NONE = -1;
+
+    private final DeviceRepository deviceRepository;
+    private final UserRepository userRepository;
+    private final PassportCatalog passportCatalog;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${search.in-memory-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${search.in-memory-index.single-node:false}")
+    private boolean singleNode;
+
+    private final NGramIndex<String> devices = new NGramIndex<>();
+    private final NGramIndex<Long> users = new NGramIndex<>();
+    private List<Runnable> pending;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (enabled && !singleNode) {
+            logger.warn("In-memory search index not built: it only sees this node's writes, "
+                    + "set search.in-memory-index.single-node once the service runs as a single instance");
+        }
+        if (!active()) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        synchronized (this) {
+            ready = false;
+            devices.clear();
+            users.clear();
+            pending = new ArrayList<>();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<DeviceSearchRow> rows = deviceRepository.streamSearchRows()) {
+                    rows.forEach(this::putDevice);
+                }
+                try (Stream<UserSearchRow> rows = userRepository.streamSearchRows()) {
+                    rows.forEach(row -> users.put(
+                            row.id(), text(row.fullName(), row.address(), row.email(), row.phone()), NONE, row.id()
+                    ));
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Building the search index failed", e);
+            synchronized (this) {
+                pending = null;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            pending.forEach(Runnable::run);
+            pending = null;
+            ready = true;
+        }
+        logger.info("Search index built with {} devices and {} users in {} ms",
+                devices.size(), users.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Serial numbers of matching devices, sorted.
+     */
+    public List<String> searchDevices(String term) {
+        List<String> serialNumbers = devices.searchKeys(term, passportCatalog.findIdsByNameOrModel(term));
+        Collections.sort(serialNumbers);
+        return serialNumbers;
+    }
+
+    /**
+     * Ids of non-admin users matching by their own fields or owning a matching device, sorted.
+     */
+    public List<Long> searchUsers(String term) {
+        Set<Long> ids = new HashSet<>(users.searchKeys(term, List.of()));
+        ids.addAll(devices.searchPayloads(term, passportCatalog.findIdsByNameOrModel(term)));
+
+        List<Long> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    public void deviceSaved(Device device) {
+        if (!active()) {
+            return;
+        }
+
+        change(putDevice(device));
+    }
+
+    public void deviceDeleted(String serialNumber) {
+        if (active()) {
+            change(() -> devices.remove(serialNumber));
+        }
+    }
+
+    /**
+     * Reindexes a saved user and, since their fields are part of their devices' text, the devices they own.
+     * The devices are read with a projection query rather than through the entity's collection.
+     */
+    public void userSaved(User user) {
+        if (!active() || user.getRole() == UserRole.ADMIN) {
+            return;
+        }
+
+        Long id = user.getId();
+        String text = text(user.getFullName(), user.getAddress(), user.getEmail(), user.getPhone());
+        List<DeviceSearchRow> rows = deviceRepository.findSearchRowsByUserId(id);
+        change(() -> {
+            users.put(id, text, NONE, id);
+            rows.forEach(this::putDevice);
+        });
+    }
+
+    /**
+     * Removes a deleted user together with the devices the delete cascaded to, whose serial numbers the caller
+     * read before deleting.
+     */
+    public void userDeleted(Long id, List<String> serialNumbers) {
+        if (!active()) {
+            return;
+        }
+
+        change(() -> {
+            users.remove(id);
+            serialNumbers.forEach(devices::remove);
+        });
+    }
+
+    /**
+     * The index update for a saved device, with its fields read now so that a replay uses the same values.
+     */
+    private Runnable putDevice(Device device) {
+        User user = device.getUser();
+        String serialNumber = device.getSerialNumber();
+        String text = user != null
+                ? text(serialNumber, user.getFullName(), user.getAddress(), user.getEmail(), user.getPhone())
+                : serialNumber;
+        long passportId = device.getPassport() != null ? device.getPassport().getId() : NONE;
+        long ownerId = user != null && user.getRole() != UserRole.ADMIN ? user.getId() : NONE;
+        return () -> devices.put(serialNumber, text, passportId, ownerId);
+    }
+
+    private void putDevice(DeviceSearchRow row) {
+        devices.put(
+                row.serialNumber(),
+                text(row.serialNumber(), row.fullName(), row.address(), row.email(), row.phone()),
+                row.passportId() != null ? row.passportId() : NONE,
+                row.userId() != null && row.userRole() != UserRole.ADMIN ? row.userId() : NONE
+        );
+    }
+
+    private boolean active() {
+        return enabled && singleNode;
+    }
+
+    private synchronized void change(Runnable change) {
+        change.run();
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    private static String text(String... fields) {
+        StringJoiner joiner = new StringJoiner("\n");
+        for (String field : fields) {
+            if (field != null) {
+                joiner.add(field);
+            }
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.DeviceSpecifications;
+import bg.tuvarna.devicebackend.utils.Csv;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the device registry row by row from a forward-only cursor, so memory use does not grow with
+ * the number of exported devices.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeviceExportService {
+    private static final String CSV_HEADER = "serialNumber,purchaseDate,warrantyExpirationDate,comment," +
+            "passportName,passportModel,ownerName,renovationCount";
+
+    private final DeviceRepository deviceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void export(String searchBy, boolean csv, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<DeviceListingVO> devices = deviceRepository.streamListing(
+                    DeviceSpecifications.search(searchBy), Sort.by("serialNumber")
+            )) {
+                if (csv) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+
+                Iterator<DeviceListingVO> iterator = devices.iterator();
+                while (iterator.hasNext()) {
+                    DeviceListingVO device = iterator.next();
+                    writer.write(csv ? toCsv(device) : objectMapper.writeValueAsString(device));
+                    writer.write('\n');
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String toCsv(DeviceListingVO device) {
+        return String.join(",",
+                Csv.escape(device.serialNumber()),
+                Csv.escape(device.purchaseDate()),
+                Csv.escape(device.warrantyExpirationDate()),
+                Csv.escape(device.comment()),
+                Csv.escape(device.passportName()),
+                Csv.escape(device.passportModel()),
+                Csv.escape(device.ownerName()),
+                Csv.escape(device.renovationCount())
+        );
+    }
+}
@@ -0,0 +1,207 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.ImportResultVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.enums.ImportStatus;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.utils.IntegrityViolations;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Registers many anonymous devices at once. Passports are resolved from the {@link PassportCatalog},
+ * already registered serials are found with one IN query per chunk and new devices are written with
+ * JDBC batches, so a chunk costs two round trips instead of four per device.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeviceImportService {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceImportService.class);
+    public static final int MAX_DEVICES = 10_000;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_SQL = "INSERT INTO devices " +
+            "(serial_number, purchase_date, warranty_expiration_date, passport_id) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DeviceRepository deviceRepository;
+    private final PassportCatalog passportCatalog;
+    private final AdminSearchIndex adminSearchIndex;
+    private final DeviceSummaryCache deviceSummaryCache;
+    private final SerialRegistry serialRegistry;
+    private final Validator validator;
+
+    public List<ImportResultVO> importDevices(List<DeviceCreateVO> devices) {
+        if (devices.size() > MAX_DEVICES) {
+            throw new CustomException("At most " + MAX_DEVICES + " devices can be registered at once", ErrorCode.Validation);
+        }
+
+        List<ImportResultVO> results = new ArrayList<>(devices.size());
+        List<Row> rows = resolve(devices, results);
+
+        for (int start = 0; start < rows.size(); start += BATCH_SIZE) {
+            List<Row> chunk = rows.subList(start, Math.min(start + BATCH_SIZE, rows.size()));
+            List<Row> remaining;
+            try {
+                remaining = withoutExisting(chunk, results);
+            } catch (RuntimeException e) {
+                // Leave duplicates to the primary key.
+                logger.warn("Could not look up existing devices, inserting the chunk as is", e);
+                remaining = chunk;
+            }
+            insert(remaining, results);
+        }
+
+        results.sort(Comparator.comparingInt(ImportResultVO::row));
+        return results;
+    }
+
+    private List<Row> resolve(List<DeviceCreateVO> devices, List<ImportResultVO> results) {
+        List<Row> rows = new ArrayList<>(devices.size());
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < devices.size(); i++) {
+            int number = i + 1;
+            DeviceCreateVO device = devices.get(i);
+
+            String error = validate(device);
+            if (error != null) {
+                results.add(new ImportResultVO(number, ImportStatus.INVALID, error));
+                continue;
+            }
+
+            if (!seen.add(device.deviceSerialNumber())) {
+                results.add(new ImportResultVO(number, ImportStatus.ALREADY_EXISTS, "Duplicate serial number in request"));
+                continue;
+            }
+
+            Passport passport = passportCatalog.find(device.deviceSerialNumber());
+            if (passport == null) {
+                results.add(new ImportResultVO(number, ImportStatus.NOT_FOUND, "Invalid serial number"));
+                continue;
+            }
+
+            rows.add(new Row(number, device, passport));
+        }
+
+        return rows;
+    }
+
+    private List<Row> withoutExisting(List<Row> chunk, List<ImportResultVO> results) {
+        Set<String> existing = new HashSet<>(deviceRepository.findExistingSerialNumbers(
+                chunk.stream().map(row -> row.device().deviceSerialNumber()).toList()
+        ));
+        if (existing.isEmpty()) {
+            return chunk;
+        }
+
+        List<Row> remaining = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existing.contains(row.device().deviceSerialNumber())) {
+                results.add(new ImportResultVO(row.number(), ImportStatus.ALREADY_EXISTS, "Device already registered"));
+            } else {
+                remaining.add(row);
+            }
+        }
+        return remaining;
+    }
+
+    private void insert(List<Row> chunk, List<ImportResultVO> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, chunk.stream().map(DeviceImportService::parameters).toList())
+            );
+            chunk.forEach(row -> created(row, results));
+        } catch (RuntimeException e) {
+            // A concurrent registration took a serial, a passport was deleted or the batch failed otherwise;
+            // find out which rows can be written row by row.
+            for (Row row : chunk) {
+                insert(row, results);
+            }
+        }
+    }
+
+    private void insert(Row row, List<ImportResultVO> results) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, parameters(row));
+            created(row, results);
+        } catch (DataIntegrityViolationException e) {
+            results.add(rejected(row, e));
+        } catch (RuntimeException e) {
+            logger.warn("Could not register device row {}", row.number(), e);
+            results.add(new ImportResultVO(row.number(), ImportStatus.INVALID, "Could not save device"));
+        }
+    }
+
+    private static ImportResultVO rejected(Row row, DataIntegrityViolationException e) {
+        if (IntegrityViolations.isDuplicateKey(e)) {
+            return new ImportResultVO(row.number(), ImportStatus.ALREADY_EXISTS, "Device already registered");
+        }
+        if (IntegrityViolations.isMissingParent(e)) {
+            return new ImportResultVO(row.number(), ImportStatus.NOT_FOUND, "Passport not found");
+        }
+        return new ImportResultVO(row.number(), ImportStatus.INVALID, "Could not save device");
+    }
+
+    private void created(Row row, List<ImportResultVO> results) {
+        Device device = new Device();
+        device.setSerialNumber(row.device().deviceSerialNumber());
+        device.setPurchaseDate(row.device().purchaseDate());
+        device.setWarrantyExpirationDate(row.warrantyExpirationDate());
+        device.setPassport(row.passport());
+        adminSearchIndex.deviceSaved(device);
+        deviceSummaryCache.invalidate(device.getSerialNumber());
+        serialRegistry.deviceSaved(device);
+
+        results.add(new ImportResultVO(row.number(), ImportStatus.CREATED));
+    }
+
+    private String validate(DeviceCreateVO device) {
+        if (device == null) {
+            return "Device is required";
+        }
+
+        Set<ConstraintViolation<DeviceCreateVO>> violations = validator.validate(device);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+        }
+        return null;
+    }
+
+    private static Object[] parameters(Row row) {
+        return new Object[]{
+                row.device().deviceSerialNumber(),
+                Date.valueOf(row.device().purchaseDate()),
+                Date.valueOf(row.warrantyExpirationDate()),
+                row.passport().getId()
+        };
+    }
+
+    private record Row(int number, DeviceCreateVO device, Passport passport) {
+        LocalDate warrantyExpirationDate() {
+            return device.purchaseDate().plusMonths(passport.getWarrantyMonths());
+        }
+    }
+}
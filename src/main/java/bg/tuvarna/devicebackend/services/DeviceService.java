@@ -3,41 +3,55 @@ package bg.tuvarna.devicebackend.services;
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
 import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.DeviceSortField;
 import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.DeviceSpecifications;
+import bg.tuvarna.devicebackend.utils.CursorCodec;
 import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.utils.IntegrityViolations;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
 public class DeviceService {
     private final DeviceRepository deviceRepository;
     private final PassportService passportService;
+    private final AdminSearchIndex adminSearchIndex;
+    private final DeviceSummaryCache deviceSummaryCache;
+    private final SerialRegistry serialRegistry;
 
     public Device registerDevice(String serialId, LocalDate purchaseDate, User user) {
-        try {
-            Passport passport = passportService.findPassportBySerialId(serialId);
+        Passport passport = findPassport(serialId);
 
-            Device device = new Device();
-            device.setSerialNumber(serialId);
-            device.setPassport(passport);
-            device.setUser(user);
-            device.setPurchaseDate(purchaseDate);
-            device.setWarrantyExpirationDate(purchaseDate.plusMonths(passport.getWarrantyMonths()).plusMonths(12));
+        Device device = new Device();
+        device.setSerialNumber(serialId);
+        device.setPassport(passport);
+        device.setUser(user);
+        device.setPurchaseDate(purchaseDate);
+        device.setWarrantyExpirationDate(purchaseDate.plusMonths(passport.getWarrantyMonths()).plusMonths(12));
 
-            return deviceRepository.save(device);
-        } catch (RuntimeException e) {
-            throw new CustomException("Invalid serial number", ErrorCode.Failed);
-        }
+        return insert(device);
     }
 
     public Device findDevice(String id) {
@@ -45,14 +59,20 @@ public class DeviceService {
     }
 
     public Device isDeviceExists(String id) {
-        if (!deviceRepository.existsById(id))
-            throw new CustomException("Device not registered", ErrorCode.NotRegistered);
-        return findDevice(id);
+        return deviceRepository.findById(id)
+                .orElseThrow(() -> new CustomException("Device not registered", ErrorCode.NotRegistered));
     }
 
-    public Device registerNewDevice(DeviceCreateVO deviceCreateVO, User user) {
-        alreadyExist(deviceCreateVO.deviceSerialNumber());
+    public DeviceSummaryVO getDeviceSummary(String serialNumber) {
+        return deviceSummaryCache.find(serialNumber)
+                .orElseThrow(() -> new CustomException("Device not registered", ErrorCode.NotRegistered));
+    }
+
+    public void deviceChanged(String serialNumber) {
+        deviceSummaryCache.invalidate(serialNumber);
+    }
 
+    public Device registerNewDevice(DeviceCreateVO deviceCreateVO, User user) {
         if (user == null) {
             throw new CustomException("User not found", ErrorCode.EntityNotFound);
         }
@@ -60,11 +80,6 @@ public class DeviceService {
         return registerDevice(deviceCreateVO.deviceSerialNumber(), deviceCreateVO.purchaseDate(), user);
     }
 
-    public void alreadyExist(String serialNumber) {
-        if (findDevice(serialNumber) != null)
-            throw new CustomException("Device already registered", ErrorCode.AlreadyExists);
-    }
-
     public Device updateDevice(String serialNumber, DeviceUpdateVO device) {
         Device deviceToUpdate = deviceRepository.findById(serialNumber).orElseThrow(() -> new CustomException("Device not found", ErrorCode.EntityNotFound));
 
@@ -80,50 +95,232 @@ public class DeviceService {
         deviceToUpdate.setWarrantyExpirationDate(warrantyDate);
         deviceToUpdate.setComment(device.comment());
 
-        return deviceRepository.save(deviceToUpdate);
+        Device saved = deviceRepository.save(deviceToUpdate);
+        deviceSummaryCache.invalidate(serialNumber);
+        return saved;
     }
 
     @Transactional
     public void deleteDevice(String serialNumber) {
+        Long passportId = deviceRepository.findPassportIdBySerialNumber(serialNumber).orElse(null);
         try {
             deviceRepository.deleteBySerialNumber(serialNumber);
         } catch (RuntimeException e) {
             throw new CustomException("Cannot delete device: renovations exist", ErrorCode.Failed);
         }
+        afterCommit(() -> {
+            adminSearchIndex.deviceDeleted(serialNumber);
+            deviceSummaryCache.invalidate(serialNumber);
+            serialRegistry.deviceDeleted(passportId, serialNumber);
+        });
+    }
+
+    /**
+     * Runs {@code change} once the surrounding transaction commits. An earlier invalidation would let a
+     * concurrent read of the still committed row put it back into the summary cache.
+     */
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
     }
 
     public Device addAnonymousDevice(DeviceCreateVO device) {
-        alreadyExist(device.deviceSerialNumber());
+        Passport passport = findPassport(device.deviceSerialNumber());
+
+        Device deviceToAdd = new Device();
+        deviceToAdd.setSerialNumber(device.deviceSerialNumber());
+        deviceToAdd.setPurchaseDate(device.purchaseDate());
+        deviceToAdd.setPassport(passport);
+        deviceToAdd.setWarrantyExpirationDate(device.purchaseDate().plusMonths(passport.getWarrantyMonths()));
+
+        return insert(deviceToAdd);
+    }
+
+    private Passport findPassport(String serialId) {
         try {
-            Passport passport = passportService.findPassportBySerialId(device.deviceSerialNumber());
+            return passportService.findPassportBySerialId(serialId);
+        } catch (RuntimeException e) {
+            throw new CustomException("Invalid serial number", ErrorCode.Failed);
+        }
+    }
 
-            Device deviceToAdd = new Device();
-            deviceToAdd.setSerialNumber(device.deviceSerialNumber());
-            deviceToAdd.setPurchaseDate(device.purchaseDate());
-            deviceToAdd.setPassport(passport);
-            deviceToAdd.setWarrantyExpirationDate(device.purchaseDate().plusMonths(passport.getWarrantyMonths()));
+    /**
+     * Inserts a new device. The serial registry is local to this node and may lag behind other nodes, so a hit
+     * is confirmed by the database before refusing; a miss is left to the primary key.
+     */
+    private Device insert(Device device) {
+        if (serialRegistry.isRegistered(device.getSerialNumber()) && deviceRepository.existsById(device.getSerialNumber())) {
+            throw new CustomException("Device already registered", ErrorCode.AlreadyExists);
+        }
 
-            return deviceRepository.save(deviceToAdd);
+        try {
+            deviceRepository.insert(device);
+        } catch (DataIntegrityViolationException e) {
+            if (IntegrityViolations.isMissingParent(e)) {
+                throw new CustomException("Invalid serial number", ErrorCode.Failed);
+            }
+            throw new CustomException("Device already registered", ErrorCode.AlreadyExists);
         } catch (RuntimeException e) {
             throw new CustomException("Invalid serial number", ErrorCode.Failed);
         }
+
+        adminSearchIndex.deviceSaved(device);
+        deviceSummaryCache.invalidate(device.getSerialNumber());
+        serialRegistry.deviceSaved(device);
+        return device;
     }
 
-    public CustomPage<Device> getDevices(String searchBy, int page, int size) {
-        Page<Device> devicePage;
-        if (searchBy == null) {
-            devicePage = deviceRepository.getAllDevices(PageRequest.of(page - 1, size));
-        } else {
-            devicePage = deviceRepository.findAll(searchBy, PageRequest.of(page - 1, size));
+    public CustomPage<DeviceListingVO> getDevices(String searchBy, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page - 1, size);
+        if (searchBy != null && adminSearchIndex.isReady()) {
+            return getIndexedDevices(searchBy, pageRequest);
         }
 
-        CustomPage<Device> customPage = new CustomPage<>();
-        customPage.setItems(devicePage.getContent());
-        customPage.setTotalItems(devicePage.getTotalElements());
-        customPage.setTotalPages(devicePage.getTotalPages());
+        Specification<Device> search = DeviceSpecifications.search(searchBy);
+
+        List<DeviceListingVO> devices = deviceRepository.findListing(
+                search, Sort.by("serialNumber"), (int) pageRequest.getOffset(), size
+        );
+        long totalItems = deviceRepository.count(search);
+
+        CustomPage<DeviceListingVO> customPage = new CustomPage<>();
+        customPage.setItems(devices);
+        customPage.setTotalItems(totalItems);
+        customPage.setTotalPages((int) ((totalItems + size - 1) / size));
         customPage.setCurrentPage(page);
         customPage.setSize(size);
 
         return customPage;
     }
+
+    private CustomPage<DeviceListingVO> getIndexedDevices(String searchBy, PageRequest pageRequest) {
+        List<String> serialNumbers = adminSearchIndex.searchDevices(searchBy);
+        int from = (int) Math.min(pageRequest.getOffset(), serialNumbers.size());
+        List<String> pageSerialNumbers = serialNumbers.subList(from, Math.min(from + pageRequest.getPageSize(), serialNumbers.size()));
+
+        CustomPage<DeviceListingVO> customPage = new CustomPage<>();
+        customPage.setItems(pageSerialNumbers.isEmpty() ? List.of() : deviceRepository.findListing(
+                DeviceSpecifications.serialNumberIn(pageSerialNumbers), Sort.by("serialNumber"), 0, pageRequest.getPageSize()
+        ));
+        customPage.setTotalItems(serialNumbers.size());
+        customPage.setTotalPages((serialNumbers.size() + pageRequest.getPageSize() - 1) / pageRequest.getPageSize());
+        customPage.setCurrentPage(pageRequest.getPageNumber() + 1);
+        customPage.setSize(pageRequest.getPageSize());
+
+        return customPage;
+    }
+
+    public CustomPage<DeviceListingVO> getDevicesAfter(String searchBy, DeviceSortField sortBy, String after, int size, boolean withTotal) {
+        if (size < 1) {
+            throw new CustomException("Page size must be positive", ErrorCode.Validation);
+        }
+
+        String lastSerialNumber = null;
+        LocalDate lastPurchaseDate = null;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after, 3);
+            if (!cursor[0].equals(sortBy.name())) {
+                throw new CustomException("Invalid cursor", ErrorCode.Validation);
+            }
+            try {
+                lastPurchaseDate = cursor[1].isEmpty() ? null : LocalDate.parse(cursor[1]);
+            } catch (DateTimeParseException e) {
+                throw new CustomException("Invalid cursor", ErrorCode.Validation);
+            }
+            lastSerialNumber = cursor[2];
+        }
+
+        Specification<Device> search = DeviceSpecifications.search(searchBy);
+        List<DeviceListingVO> devices = new ArrayList<>();
+
+        if (sortBy == DeviceSortField.SERIAL_NUMBER) {
+            devices.addAll(findDevices(search.and(DeviceSpecifications.serialNumberAfter(lastSerialNumber)),
+                    Sort.by("serialNumber"), size + 1));
+        } else {
+            // Devices without a purchase date come after all dated ones, so the walk has two phases.
+            // Splitting them keeps the order the same on every database regardless of its NULL ordering.
+            boolean inUndatedPhase = lastSerialNumber != null && lastPurchaseDate == null;
+            if (!inUndatedPhase) {
+                devices.addAll(findDevices(search.and(DeviceSpecifications.purchasedAfter(lastPurchaseDate, lastSerialNumber)),
+                        Sort.by("purchaseDate", "serialNumber"), size + 1));
+            }
+            if (devices.size() <= size) {
+                devices.addAll(findDevices(search.and(DeviceSpecifications.withoutPurchaseDate())
+                                .and(DeviceSpecifications.serialNumberAfter(inUndatedPhase ? lastSerialNumber : null)),
+                        Sort.by("serialNumber"), size + 1 - devices.size()));
+            }
+        }
+
+        CustomPage<DeviceListingVO> customPage = new CustomPage<>();
+        if (devices.size() > size) {
+            devices = devices.subList(0, size);
+            DeviceListingVO last = devices.get(size - 1);
+            customPage.setNextCursor(CursorCodec.encode(sortBy.name(), last.purchaseDate(), last.serialNumber()));
+        }
+        customPage.setItems(devices);
+        customPage.setSize(size);
+
+        if (withTotal) {
+            long totalItems = deviceRepository.count(search);
+            customPage.setTotalItems(totalItems);
+            customPage.setTotalPages((int) ((totalItems + size - 1) / size));
+        }
+
+        return customPage;
+    }
+
+    public CustomPage<ExpiringWarrantyVO> getExpiringWarranties(int days, String after, int size, boolean withTotal) {
+        if (size < 1 || days < 0) {
+            throw new CustomException("Page size must be positive and days must not be negative", ErrorCode.Validation);
+        }
+
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(days);
+
+        LocalDate afterDate = from.minusDays(1);
+        String afterSerialNumber = "";
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after, 2);
+            try {
+                afterDate = LocalDate.parse(cursor[0]);
+            } catch (DateTimeParseException e) {
+                throw new CustomException("Invalid cursor", ErrorCode.Validation);
+            }
+            afterSerialNumber = cursor[1];
+        }
+
+        List<ExpiringWarrantyVO> warranties = deviceRepository.findExpiringWarranties(
+                from, to, afterDate, afterSerialNumber, Limit.of(size + 1)
+        );
+
+        CustomPage<ExpiringWarrantyVO> customPage = new CustomPage<>();
+        if (warranties.size() > size) {
+            warranties = warranties.subList(0, size);
+            ExpiringWarrantyVO last = warranties.get(size - 1);
+            customPage.setNextCursor(CursorCodec.encode(last.warrantyExpirationDate(), last.serialNumber()));
+        }
+        customPage.setItems(warranties);
+        customPage.setSize(size);
+
+        if (withTotal) {
+            long totalItems = deviceRepository.countByWarrantyExpirationDateBetween(from, to);
+            customPage.setTotalItems(totalItems);
+            customPage.setTotalPages((int) ((totalItems + size - 1) / size));
+        }
+
+        return customPage;
+    }
+
+    private List<DeviceListingVO> findDevices(Specification<Device> specification, Sort sort, int limit) {
+        return deviceRepository.findListing(specification, sort, 0, limit);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.CacheStatsVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.utils.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Device summaries for the public existence check, one query per miss. Every write that can create, change or
+ * remove a device must call {@link #invalidate}. Unknown serials are cached only for a few seconds: a device
+ * registered through another instance would otherwise be reported as missing here for the whole TTL.
+ */
+@Service
+public class DeviceSummaryCache {
+    private final DeviceRepository deviceRepository;
+    private final TtlCache<String, Optional<DeviceSummaryVO>> cache;
+
+    public DeviceSummaryCache(
+            DeviceRepository deviceRepository,
+            @Value("${device.summary-cache.max-size:10000}") int maxSize,
+            @Value("${device.summary-cache.ttl:PT5M}") Duration ttl,
+            @Value("${device.summary-cache.missing-ttl:PT5S}") Duration missingTtl
+    ) {
+        this.deviceRepository = deviceRepository;
+        this.cache = new TtlCache<>(maxSize, summary -> summary.isPresent() ? ttl : missingTtl);
+    }
+
+    public Optional<DeviceSummaryVO> find(String serialNumber) {
+        return cache.get(serialNumber, deviceRepository::findSummary);
+    }
+
+    public void invalidate(String serialNumber) {
+        cache.invalidate(serialNumber);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStatsVO stats() {
+        long hits = cache.hits();
+        long misses = cache.misses();
+        long lookups = hits + misses;
+
+        return new CacheStatsVO(hits, misses, cache.evictions(), cache.size(), lookups == 0 ? 0 : (double) hits / lookups);
+    }
+}
@@ -0,0 +1,48 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends every reminder as one JSON line to {@code warranty.reminders.file}.
+ */
+@Component
+@ConditionalOnProperty(name = "warranty.reminders.sink", havingValue = "file")
+public class FileWarrantyReminderSink implements WarrantyReminderSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileWarrantyReminderSink(
+            ObjectMapper objectMapper,
+            @Value("${warranty.reminders.file:warranty-reminders.ndjson}") Path file
+    ) {
+        this.objectMapper = objectMapper;
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void publish(List<ExpiringWarrantyVO> chunk) {
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+        )) {
+            for (ExpiringWarrantyVO warranty : chunk) {
+                writer.write(objectMapper.writeValueAsString(warranty));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
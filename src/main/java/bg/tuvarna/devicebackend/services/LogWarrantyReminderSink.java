@@ -0,0 +1,23 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "warranty.reminders.sink", havingValue = "log", matchIfMissing = true)
+public class LogWarrantyReminderSink implements WarrantyReminderSink {
+    private static final Logger logger = LoggerFactory.getLogger(LogWarrantyReminderSink.class);
+
+    @Override
+    public void publish(List<ExpiringWarrantyVO> chunk) {
+        for (ExpiringWarrantyVO warranty : chunk) {
+            logger.info("Warranty of device {} expires on {} (owner: {})",
+                    warranty.serialNumber(), warranty.warrantyExpirationDate(), warranty.ownerEmail());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.mappers.PassportMapper;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.utils.SerialRangeIndex;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Resident copy of all passports used to resolve serial numbers without touching the database.
+ * Readers always see one complete, immutable {@link Snapshot}; writers build the next version
+ * and swap the reference, so a lookup never observes a half applied change.
+ */
+@Service
+public class PassportCatalog {
+    private static final int RELOAD_ATTEMPTS = 3;
+
+    private final PassportRepository passportRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyMap(), SerialRangeIndex.EMPTY);
+
+    public PassportCatalog(PassportRepository passportRepository) {
+        this.passportRepository = passportRepository;
+    }
+
+    /**
+     * Replaces the catalog with the passports in the database. The table is read without holding the lock, so
+     * a change applied meanwhile would be lost by the swap; in that case the read is retried, and the last
+     * attempt holds the lock throughout.
+     */
+    @PostConstruct
+    public void reload() {
+        for (int attempt = 1; attempt < RELOAD_ATTEMPTS; attempt++) {
+            long version = snapshot.version();
+            Map<Long, Passport> passports = readAll();
+
+            synchronized (this) {
+                if (snapshot.version() == version) {
+                    swap(passports);
+                    return;
+                }
+            }
+        }
+
+        synchronized (this) {
+            swap(readAll());
+        }
+    }
+
+    private Map<Long, Passport> readAll() {
+        Map<Long, Passport> passports = new HashMap<>();
+        for (Passport passport : passportRepository.findAll()) {
+            passports.put(passport.getId(), PassportMapper.copy(passport));
+        }
+        return passports;
+    }
+
+    public void refresh(Long id) {
+        Passport passport = passportRepository.findById(id).orElse(null);
+
+        if (passport == null) {
+            remove(id);
+        } else {
+            put(passport);
+        }
+    }
+
+    public synchronized void put(Passport passport) {
+        Passport copy = PassportMapper.copy(passport);
+        change(passports -> passports.put(copy.getId(), copy));
+    }
+
+    public synchronized void remove(Long id) {
+        if (snapshot.passports().containsKey(id)) {
+            change(passports -> passports.remove(id));
+        }
+    }
+
+    public Passport find(String serialId) {
+        return snapshot.index().find(serialId);
+    }
+
+    public Passport get(Long id) {
+        return snapshot.passports().get(id);
+    }
+
+    public boolean overlaps(String serialPrefix, int fromSerialNumber, int toSerialNumber, Long excludedId) {
+        return snapshot.index().overlaps(serialPrefix, fromSerialNumber, toSerialNumber, excludedId);
+    }
+
+    public List<Long> findIdsByNameOrModel(String term) {
+        String needle = term.toLowerCase();
+        List<Long> ids = new ArrayList<>();
+        for (Passport passport : snapshot.passports().values()) {
+            if (containsIgnoreCase(passport.getName(), needle) || containsIgnoreCase(passport.getModel(), needle)) {
+                ids.add(passport.getId());
+            }
+        }
+        return ids;
+    }
+
+    public int size() {
+        return snapshot.passports().size();
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    private void change(Consumer<Map<Long, Passport>> change) {
+        Map<Long, Passport> passports = new HashMap<>(snapshot.passports());
+        change.accept(passports);
+        swap(passports);
+    }
+
+    private void swap(Map<Long, Passport> passports) {
+        snapshot = new Snapshot(
+                snapshot.version() + 1,
+                Collections.unmodifiableMap(passports),
+                SerialRangeIndex.of(passports.values())
+        );
+    }
+
+    private static boolean containsIgnoreCase(String value, String lowerCaseNeedle) {
+        return value != null && value.toLowerCase().contains(lowerCaseNeedle);
+    }
+
+    private record Snapshot(long version, Map<Long, Passport> passports, SerialRangeIndex index) {
+    }
+}
@@ -0,0 +1,54 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps {@link PassportCatalog} in line with the passports table. Changes are applied only once
+ * the surrounding transaction commits, so rolled back writes never reach the catalog.
+ */
+public class PassportCatalogListener {
+    private final ObjectProvider<PassportCatalog> passportCatalog;
+
+    public PassportCatalogListener(ObjectProvider<PassportCatalog> passportCatalog) {
+        this.passportCatalog = passportCatalog;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Passport passport) {
+        afterCommit(catalog -> catalog.put(passport));
+    }
+
+    @PostRemove
+    public void onRemove(Passport passport) {
+        Long id = passport.getId();
+        afterCommit(catalog -> catalog.remove(id));
+    }
+
+    private void afterCommit(Consumer<PassportCatalog> change) {
+        PassportCatalog catalog = passportCatalog.getIfAvailable();
+        if (catalog == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.accept(catalog);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.accept(catalog);
+            }
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.DatabasePlatform;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Applies passport changes committed by other nodes. A trigger on the passports table sends
+ * {@code upsert:<id>} or {@code delete:<id>} on the {@value #CHANNEL} channel; this subscriber holds
+ * one connection listening on it and patches {@link PassportCatalog}. After every (re)connect the
+ * catalog is fully reloaded, because notifications sent while disconnected are lost.
+ * <p>
+ * The connection is opened with the datasource's URL and credentials but outside the connection pool,
+ * so the pool keeps all of its connections and its max-lifetime does not cut the subscription.
+ */
+@Component
+@RequiredArgsConstructor
+public class PassportCatalogSubscriber {
+    public static final String CHANNEL = "passport_catalog";
+
+    private static final Logger logger = LoggerFactory.getLogger(PassportCatalogSubscriber.class);
+    private static final int POLL_TIMEOUT_MS = 5_000;
+    private static final long RECONNECT_DELAY_MS = 2_000;
+    private static final int FULL_RELOAD_THRESHOLD = 64;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final DatabasePlatform databasePlatform;
+    private final PassportCatalog passportCatalog;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!databasePlatform.isPostgres()) {
+            return;
+        }
+
+        running = true;
+        worker = new Thread(this::listen, "passport-catalog-subscriber");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = connect()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+
+                passportCatalog.reload();
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        apply(Arrays.stream(notifications).map(PGNotification::getParameter).toList());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Passport catalog subscription lost, reconnecting: {}", e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        String username = dataSourceProperties.determineUsername();
+        String password = dataSourceProperties.determinePassword();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    void apply(List<String> payloads) {
+        if (payloads.size() > FULL_RELOAD_THRESHOLD) {
+            passportCatalog.reload();
+            return;
+        }
+
+        for (String payload : payloads) {
+            int separator = payload == null ? -1 : payload.indexOf(':');
+            Long id = separator < 0 ? null : parseId(payload.substring(separator + 1));
+            if (id == null) {
+                logger.warn("Ignoring malformed passport catalog notification: {}", payload);
+                continue;
+            }
+
+            String operation = payload.substring(0, separator);
+            if (operation.equals("delete")) {
+                passportCatalog.remove(id);
+            } else if (operation.equals("upsert")) {
+                passportCatalog.refresh(id);
+            } else {
+                logger.warn("Ignoring malformed passport catalog notification: {}", payload);
+            }
+        }
+    }
+
+    private static Long parseId(String id) {
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
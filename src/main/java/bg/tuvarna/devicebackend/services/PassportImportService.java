@@ -0,0 +1,217 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.PostgresSchemaSetup;
+import bg.tuvarna.devicebackend.config.SequenceIdAllocator;
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.ImportResultVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.entities.IdSequences;
+import bg.tuvarna.devicebackend.models.enums.ImportStatus;
+import bg.tuvarna.devicebackend.utils.Csv;
+import bg.tuvarna.devicebackend.utils.IntegrityViolations;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class PassportImportService {
+    private static final Logger logger = LoggerFactory.getLogger(PassportImportService.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_SQL = "INSERT INTO passports " +
+            "(id, name, model, serial_prefix, warranty_months, from_serial_number, to_serial_number) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator sequenceIdAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final PassportCatalog passportCatalog;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    public List<ImportResultVO> importPassports(InputStream body, boolean csv) {
+        Chunks chunks = new Chunks();
+
+        try {
+            read(body, csv, chunks);
+            chunks.flush();
+        } finally {
+            passportCatalog.reload();
+        }
+
+        chunks.results.sort(Comparator.comparingInt(ImportResultVO::row));
+        return chunks.results;
+    }
+
+    private void read(InputStream body, boolean csv, Chunks chunks) {
+        int number = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank() || (csv && number == 1 && line.toLowerCase().startsWith("name"))) {
+                    continue;
+                }
+
+                PassportCreateVO passport;
+                try {
+                    passport = csv ? fromCsv(line) : objectMapper.readValue(line, PassportCreateVO.class);
+                } catch (JsonProcessingException | RuntimeException e) {
+                    chunks.results.add(new ImportResultVO(number, ImportStatus.INVALID, "Malformed row"));
+                    continue;
+                }
+
+                String error = validate(passport);
+                if (error != null) {
+                    chunks.results.add(new ImportResultVO(number, ImportStatus.INVALID, error));
+                } else {
+                    chunks.add(new Row(number, passport));
+                }
+            }
+        } catch (IOException e) {
+            if (number == 0) {
+                throw new CustomException("Could not read passport import", ErrorCode.Failed);
+            }
+            // Earlier batches are committed already, so report where reading stopped instead of failing.
+            chunks.results.add(new ImportResultVO(number + 1, ImportStatus.INVALID, "Unreadable input, import stopped"));
+        }
+    }
+
+    /**
+     * Checks the rows as they are read and writes them a batch at a time, so only the accepted ranges of the
+     * upload are kept in memory. A row is accepted when it overlaps neither an accepted row with the same
+     * prefix (found with one floor lookup, as accepted ranges are disjoint) nor an existing passport.
+     */
+    private class Chunks {
+        private final List<ImportResultVO> results = new ArrayList<>();
+        private final Map<String, TreeMap<Integer, Accepted>> accepted = new HashMap<>();
+        private final List<Row> chunk = new ArrayList<>(BATCH_SIZE);
+
+        void add(Row row) {
+            PassportCreateVO passport = row.passport();
+            TreeMap<Integer, Accepted> ranges = accepted.computeIfAbsent(passport.serialPrefix(), prefix -> new TreeMap<>());
+
+            Map.Entry<Integer, Accepted> previous = ranges.floorEntry(passport.toSerialNumber());
+            if (previous != null && previous.getValue().toSerialNumber() >= passport.fromSerialNumber()) {
+                results.add(new ImportResultVO(row.number(), ImportStatus.OVERLAP, "Overlaps row " + previous.getValue().row()));
+                return;
+            }
+
+            if (passportCatalog.overlaps(passport.serialPrefix(), passport.fromSerialNumber(), passport.toSerialNumber(), null)) {
+                results.add(new ImportResultVO(row.number(), ImportStatus.ALREADY_EXISTS, "Serial number already exists"));
+                return;
+            }
+
+            ranges.put(passport.fromSerialNumber(), new Accepted(passport.toSerialNumber(), row.number()));
+            chunk.add(row);
+            if (chunk.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            long[] ids = sequenceIdAllocator.allocate(IdSequences.PASSPORTS, chunk.size());
+            List<Object[]> batch = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                batch.add(parameters(chunk.get(i), ids[i]));
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+                chunk.forEach(row -> results.add(new ImportResultVO(row.number(), ImportStatus.CREATED)));
+            } catch (RuntimeException e) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    insert(chunk.get(i), batch.get(i));
+                }
+            }
+            chunk.clear();
+        }
+
+        private void insert(Row row, Object[] values) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, values);
+                results.add(new ImportResultVO(row.number(), ImportStatus.CREATED));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (IntegrityViolations.violates(e, PostgresSchemaSetup.SERIAL_RANGE_CONSTRAINT)) {
+                    results.add(new ImportResultVO(row.number(), ImportStatus.ALREADY_EXISTS, "Serial number already exists"));
+                } else {
+                    results.add(new ImportResultVO(row.number(), ImportStatus.INVALID, "Could not save passport"));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not import passport row {}", row.number(), e);
+                results.add(new ImportResultVO(row.number(), ImportStatus.INVALID, "Could not save passport"));
+            }
+
+            PassportCreateVO passport = row.passport();
+            accepted.get(passport.serialPrefix()).remove(passport.fromSerialNumber());
+        }
+    }
+
+    private String validate(PassportCreateVO passport) {
+        Set<ConstraintViolation<PassportCreateVO>> violations = validator.validate(passport);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+        }
+        if (passport.fromSerialNumber() > passport.toSerialNumber()) {
+            return "From serial number must not be greater than to serial number";
+        }
+        return null;
+    }
+
+    private static PassportCreateVO fromCsv(String line) {
+        List<String> fields = Csv.split(line);
+        if (fields.size() != 6) {
+            throw new IllegalArgumentException("Expected 6 columns");
+        }
+
+        return new PassportCreateVO(
+                fields.get(0),
+                fields.get(1),
+                fields.get(2),
+                Integer.valueOf(fields.get(3)),
+                Integer.valueOf(fields.get(4)),
+                Integer.valueOf(fields.get(5))
+        );
+    }
+
+    private static Object[] parameters(Row row, long id) {
+        PassportCreateVO passport = row.passport();
+        return new Object[]{
+                id,
+                passport.name(),
+                passport.model(),
+                passport.serialPrefix(),
+                passport.warrantyMonths(),
+                passport.fromSerialNumber(),
+                passport.toSerialNumber()
+        };
+    }
+
+    private record Row(int number, PassportCreateVO passport) {
+    }
+
+    private record Accepted(int toSerialNumber, int row) {
+    }
+}
@@ -1,35 +1,43 @@
 package bg.tuvarna.devicebackend.services;
 
+import bg.tuvarna.devicebackend.PostgresSchemaSetup;
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
 import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportLookupResultVO;
 import bg.tuvarna.devicebackend.models.dtos.PassportUpdateVO;
 import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.mappers.PassportMapper;
 import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.utils.CursorCodec;
 import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.utils.IntegrityViolations;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Objects;
 
 @Service
 @AllArgsConstructor
 public class PassportService {
     private final PassportRepository passportRepository;
+    private final PassportCatalog passportCatalog;
+    private final WarrantyRecalculationService warrantyRecalculationService;
+    private final SerialRegistry serialRegistry;
 
     public Passport create(PassportCreateVO passportCreateVO) {
-        List<Passport> passports = passportRepository.findByFromSerialNumberBetween(passportCreateVO.serialPrefix(), passportCreateVO.fromSerialNumber(), passportCreateVO.toSerialNumber());
-        if (!passports.isEmpty()) {
+        if (passportCatalog.overlaps(passportCreateVO.serialPrefix(), passportCreateVO.fromSerialNumber(), passportCreateVO.toSerialNumber(), null)) {
             throw new CustomException("Serial number already exists", ErrorCode.AlreadyExists);
         }
 
         Passport passport = PassportMapper.toEntity(passportCreateVO);
 
-        return passportRepository.save(passport);
+        return saveExclusive(passport);
     }
 
     public Passport update(Long id, PassportUpdateVO passportUpdateVO) {
@@ -43,40 +51,69 @@ public class PassportService {
         int fromSerialNumber = passportUpdateVO.fromSerialNumber() != null ? passportUpdateVO.fromSerialNumber() : passport.getFromSerialNumber();
         int toSerialNumber = passportUpdateVO.toSerialNumber() != null ? passportUpdateVO.toSerialNumber() : passport.getToSerialNumber();
 
-        List<Passport> passports = passportRepository.findByFromSerialNumberBetween(serialPrefix, fromSerialNumber, toSerialNumber);
-        if (!passports.isEmpty() && passports.stream().anyMatch(p -> !Objects.equals(p.getId(), passport.getId()))) {
+        if (passportCatalog.overlaps(serialPrefix, fromSerialNumber, toSerialNumber, passport.getId())) {
             throw new CustomException("Serial number already exists", ErrorCode.AlreadyExists);
         }
 
+        int previousWarrantyMonths = passport.getWarrantyMonths();
+        boolean rangeChanged = !serialPrefix.equals(passport.getSerialPrefix())
+                || fromSerialNumber != passport.getFromSerialNumber()
+                || toSerialNumber != passport.getToSerialNumber();
+
         PassportMapper.updateEntity(passport, passportUpdateVO);
 
-        return passportRepository.save(passport);
+        Passport saved = saveExclusive(passport);
+
+        if (rangeChanged) {
+            serialRegistry.rebuild(saved.getId());
+        }
+
+        if (saved.getWarrantyMonths() != previousWarrantyMonths) {
+            warrantyRecalculationService.recalculate(
+                    warrantyRecalculationService.start(saved.getId(), saved.getWarrantyMonths())
+            );
+        }
+
+        return saved;
+    }
+
+    private Passport saveExclusive(Passport passport) {
+        try {
+            return passportRepository.saveAndFlush(passport);
+        } catch (DataIntegrityViolationException e) {
+            if (IntegrityViolations.violates(e, PostgresSchemaSetup.SERIAL_RANGE_CONSTRAINT)) {
+                throw new CustomException("Serial number already exists", ErrorCode.AlreadyExists);
+            }
+            throw e;
+        }
     }
 
     public Passport findPassportById(Long id) {
         return passportRepository.findById(id).orElse(null);
     }
 
+    public Passport findPassportForSerialId(String serialId) {
+        return passportCatalog.find(serialId);
+    }
+
     public Passport findPassportBySerialId(String serialId) {
-        List<Passport> passports = getPassportsBySerialPrefix(serialId);
-        
-        for (Passport passport : passports) {
-            int serialNumber;
-            try {
-                serialNumber = Integer.parseInt(serialId.split(passport.getSerialPrefix())[1]);
-            } catch (NumberFormatException e) {
-                continue;
-            }
-            if (serialNumber >= passport.getFromSerialNumber() && serialNumber <= passport.getToSerialNumber()) {
-                return passport;
-            }
+        Passport passport = passportCatalog.find(serialId);
+
+        if (passport == null) {
+            throw new CustomException("Passport not found for serial number: " + serialId, ErrorCode.Failed);
         }
 
-        throw new CustomException("Passport not found for serial number: " + serialId, ErrorCode.Failed);
+        return passport;
+    }
+
+    public List<PassportLookupResultVO> findPassportsBySerialIds(List<String> serialIds) {
+        return serialIds.stream()
+                .map(serialId -> new PassportLookupResultVO(serialId, passportCatalog.find(serialId)))
+                .toList();
     }
 
     public CustomPage<Passport> getPassports(int page, int size) {
-        Page<Passport> passports = passportRepository.findAll(PageRequest.of(page - 1, size));
+        Page<Passport> passports = passportRepository.findAll(PageRequest.of(page - 1, size, Sort.by("id")));
 
         CustomPage<Passport> customPage = new CustomPage<>();
         customPage.setTotalPages(passports.getTotalPages());
@@ -84,6 +121,36 @@ public class PassportService {
         customPage.setSize(passports.getSize());
         customPage.setTotalItems(passports.getTotalElements());
         customPage.setItems(passports.getContent());
+        if (passports.hasNext()) {
+            customPage.setNextCursor(CursorCodec.encode(passports.getContent().get(passports.getNumberOfElements() - 1).getId()));
+        }
+
+        return customPage;
+    }
+
+    public CustomPage<Passport> getPassportsAfter(String after, int size) {
+        if (size < 1) {
+            throw new CustomException("Page size must be positive", ErrorCode.Validation);
+        }
+
+        long lastId = after == null || after.isEmpty() ? 0 : CursorCodec.decodeLong(after);
+
+        List<Passport> passports = passportRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(size + 1));
+        boolean hasNext = passports.size() > size;
+        if (hasNext) {
+            passports = passports.subList(0, size);
+        }
+
+        int totalItems = passportCatalog.size();
+
+        CustomPage<Passport> customPage = new CustomPage<>();
+        customPage.setTotalPages((totalItems + size - 1) / size);
+        customPage.setSize(size);
+        customPage.setTotalItems(totalItems);
+        customPage.setItems(passports);
+        if (hasNext) {
+            customPage.setNextCursor(CursorCodec.encode(passports.get(size - 1).getId()));
+        }
 
         return customPage;
     }
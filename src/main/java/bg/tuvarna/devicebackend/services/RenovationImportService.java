@@ -0,0 +1,253 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.SequenceIdAllocator;
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.ImportResultVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RegisteredSerialRow;
+import bg.tuvarna.devicebackend.models.dtos.RenovationImportVO;
+import bg.tuvarna.devicebackend.models.entities.IdSequences;
+import bg.tuvarna.devicebackend.models.enums.ImportStatus;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests repair logs of any size. The body is read as a stream, either a JSON array or NDJSON, and handled
+ * in chunks: the device serials of a chunk are checked with one IN query and its renovations are written
+ * with one JDBC batch. Only the current chunk and the failed rows are kept in memory.
+ * <p>
+ * Every chunk commits on its own. If the body turns unreadable part way, the rows read so far are still
+ * written and the result names the row the import stopped at, so the client can resend from there.
+ */
+@Service
+@RequiredArgsConstructor
+public class RenovationImportService {
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_SQL = "INSERT INTO renovations " +
+            "(id, description, renovation_date, device_serial_number) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator sequenceIdAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final DeviceRepository deviceRepository;
+    private final DeviceService deviceService;
+    private final RenovationRollupService renovationRollupService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    public RenovationImportVO importRenovations(InputStream body, boolean ndjson) {
+        Chunks chunks = new Chunks();
+        Integer stoppedAtRow = null;
+
+        try {
+            if (ndjson) {
+                readLines(body, chunks);
+            } else {
+                readArray(body, chunks);
+            }
+        } catch (IOException e) {
+            if (chunks.lastRow == 0) {
+                throw new CustomException("Malformed renovation import", ErrorCode.Validation);
+            }
+            stoppedAtRow = chunks.lastRow + 1;
+            chunks.fail(stoppedAtRow, ImportStatus.INVALID, "Unreadable input, import stopped");
+        }
+        chunks.flush();
+
+        chunks.failures.sort(Comparator.comparingInt(ImportResultVO::row));
+        return new RenovationImportVO(chunks.rows, chunks.created, chunks.failures, stoppedAtRow);
+    }
+
+    private void readLines(InputStream body, Chunks chunks) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            try {
+                chunks.add(number, objectMapper.readValue(line, RenovationCreateVO.class));
+            } catch (JsonProcessingException e) {
+                chunks.fail(number, ImportStatus.INVALID, "Malformed row");
+            }
+        }
+    }
+
+    /**
+     * A syntax error between elements cannot be skipped, so it ends the read with a {@link JsonProcessingException}.
+     */
+    private void readArray(InputStream body, Chunks chunks) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new CustomException("Expected a JSON array of renovations", ErrorCode.Validation);
+            }
+
+            int number = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(parser, "Unexpected end of renovation array");
+                }
+                number++;
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    chunks.add(number, objectMapper.treeToValue(node, RenovationCreateVO.class));
+                } catch (JsonProcessingException e) {
+                    chunks.fail(number, ImportStatus.INVALID, "Malformed row");
+                }
+            }
+        }
+    }
+
+    private String validate(RenovationCreateVO renovation) {
+        if (renovation == null) {
+            return "Renovation is required";
+        }
+
+        Set<ConstraintViolation<RenovationCreateVO>> violations = validator.validate(renovation);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+        }
+        return null;
+    }
+
+    private static Object[] parameters(Row row, long id) {
+        return new Object[]{
+                id,
+                row.renovation().description(),
+                Date.valueOf(row.renovation().renovationDate()),
+                row.renovation().deviceSerialNumber()
+        };
+    }
+
+    private record Row(int number, RenovationCreateVO renovation) {
+    }
+
+    private final class Chunks {
+        private final List<Row> chunk = new ArrayList<>(BATCH_SIZE);
+        private final List<ImportResultVO> failures = new ArrayList<>();
+        private int rows;
+        private int created;
+        private int lastRow;
+
+        void add(int number, RenovationCreateVO renovation) {
+            rows++;
+            lastRow = number;
+            String error = validate(renovation);
+            if (error != null) {
+                failures.add(new ImportResultVO(number, ImportStatus.INVALID, error));
+                return;
+            }
+
+            chunk.add(new Row(number, renovation));
+            if (chunk.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void fail(int number, ImportStatus status, String message) {
+            rows++;
+            lastRow = number;
+            failures.add(new ImportResultVO(number, status, message));
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            Set<String> serialNumbers = chunk.stream()
+                    .map(row -> row.renovation().deviceSerialNumber())
+                    .collect(Collectors.toSet());
+            Map<String, Long> passportIds = new HashMap<>();
+            for (RegisteredSerialRow device : deviceRepository.findPassportIdsBySerialNumbers(serialNumbers)) {
+                passportIds.put(device.serialNumber(), device.passportId());
+            }
+
+            List<Row> accepted = new ArrayList<>(chunk.size());
+            for (Row row : chunk) {
+                if (passportIds.containsKey(row.renovation().deviceSerialNumber())) {
+                    accepted.add(row);
+                } else {
+                    failures.add(new ImportResultVO(row.number(), ImportStatus.NOT_FOUND, "Device not registered"));
+                }
+            }
+            chunk.clear();
+
+            insert(accepted, passportIds);
+            passportIds.keySet().forEach(deviceService::deviceChanged);
+        }
+
+        private void insert(List<Row> accepted, Map<String, Long> passportIds) {
+            if (accepted.isEmpty()) {
+                return;
+            }
+
+            long[] ids = sequenceIdAllocator.allocate(IdSequences.RENOVATIONS, accepted.size());
+            List<Object[]> batch = new ArrayList<>(accepted.size());
+            Map<RenovationRollupService.Bucket, Long> counts = new HashMap<>();
+            for (int i = 0; i < accepted.size(); i++) {
+                RenovationCreateVO renovation = accepted.get(i).renovation();
+                batch.add(parameters(accepted.get(i), ids[i]));
+
+                RenovationRollupService.Bucket bucket = RenovationRollupService.Bucket.of(
+                        passportIds.get(renovation.deviceSerialNumber()), renovation.renovationDate()
+                );
+                if (bucket != null) {
+                    counts.merge(bucket, 1L, Long::sum);
+                }
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                    renovationRollupService.add(counts);
+                });
+                created += accepted.size();
+            } catch (DataIntegrityViolationException e) {
+                // A device was deleted after the IN query; find out which rows lost it one by one.
+                for (int i = 0; i < accepted.size(); i++) {
+                    Object[] values = batch.get(i);
+                    RenovationCreateVO renovation = accepted.get(i).renovation();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            jdbcTemplate.update(INSERT_SQL, values);
+                            renovationRollupService.increment(
+                                    passportIds.get(renovation.deviceSerialNumber()), renovation.renovationDate()
+                            );
+                        });
+                        created++;
+                    } catch (DataIntegrityViolationException ex) {
+                        failures.add(new ImportResultVO(accepted.get(i).number(), ImportStatus.NOT_FOUND, "Device not registered"));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.DatabasePlatform;
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.RenovationRateVO;
+import bg.tuvarna.devicebackend.models.dtos.RollupBackfillVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.RenovationMonthlyCount;
+import bg.tuvarna.devicebackend.models.enums.JobStatus;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationMonthlyCountRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renovation counts per passport and month, kept in {@code renovation_monthly_counts} so that rate queries read
+ * one row per passport and month instead of scanning the renovations. Writers add their counts with an upsert in
+ * the same transaction as the renovations themselves; {@link #backfill()} rebuilds the table from scratch.
+ */
+@Service
+@RequiredArgsConstructor
+public class RenovationRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(RenovationRollupService.class);
+
+    private static final String POSTGRES_UPSERT_SQL = "INSERT INTO renovation_monthly_counts " +
+            "(passport_id, month_start, renovations) VALUES (?, ?, ?) " +
+            "ON CONFLICT (passport_id, month_start) " +
+            "DO UPDATE SET renovations = renovation_monthly_counts.renovations + EXCLUDED.renovations";
+    private static final String MERGE_SQL = "MERGE INTO renovation_monthly_counts t " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS BIGINT))) s(passport_id, month_start, renovations) " +
+            "ON t.passport_id = s.passport_id AND t.month_start = s.month_start " +
+            "WHEN MATCHED THEN UPDATE SET renovations = t.renovations + s.renovations " +
+            "WHEN NOT MATCHED THEN INSERT (passport_id, month_start, renovations) " +
+            "VALUES (s.passport_id, s.month_start, s.renovations)";
+    private static final String BACKFILL_SQL = "INSERT INTO renovation_monthly_counts " +
+            "(passport_id, month_start, renovations) " +
+            "SELECT d.passport_id, CAST(DATE_TRUNC('month', r.renovation_date) AS DATE), COUNT(*) " +
+            "FROM renovations r JOIN devices d ON d.serial_number = r.device_serial_number " +
+            "WHERE d.passport_id IS NOT NULL AND r.renovation_date IS NOT NULL " +
+            "GROUP BY d.passport_id, CAST(DATE_TRUNC('month', r.renovation_date) AS DATE)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DatabasePlatform databasePlatform;
+    private final RenovationMonthlyCountRepository renovationMonthlyCountRepository;
+    private final DeviceRepository deviceRepository;
+    private final PassportCatalog passportCatalog;
+    private final SerialRegistry serialRegistry;
+
+    private final AtomicReference<RollupBackfillVO> backfill = new AtomicReference<>();
+
+    /**
+     * Adds the given counts. Buckets are written in key order so that concurrent writers lock the rows
+     * in the same order. Joins the caller's transaction when there is one.
+     */
+    public void add(Map<Bucket, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>(counts.size());
+        new TreeMap<>(counts).forEach((bucket, renovations) -> batch.add(new Object[]{
+                bucket.passportId(), Date.valueOf(bucket.monthStart()), renovations
+        }));
+        jdbcTemplate.batchUpdate(databasePlatform.isPostgres() ? POSTGRES_UPSERT_SQL : MERGE_SQL, batch);
+    }
+
+    public void increment(Long passportId, LocalDate renovationDate) {
+        Bucket bucket = Bucket.of(passportId, renovationDate);
+        if (bucket != null) {
+            add(Map.of(bucket, 1L));
+        }
+    }
+
+    /**
+     * Recounts the whole table with one {@code INSERT ... SELECT}. On Postgres the table is locked against writers
+     * first, so a renovation committed during the rebuild is either in the recount or added after it, never both.
+     */
+    @Async
+    public void backfill() {
+        RollupBackfillVO current = backfill.get();
+        RollupBackfillVO job = new RollupBackfillVO(JobStatus.RUNNING, 0, LocalDateTime.now(), null);
+        if ((current != null && current.status() == JobStatus.RUNNING) || !backfill.compareAndSet(current, job)) {
+            logger.info("Renovation rollup backfill already running");
+            return;
+        }
+
+        try {
+            Integer rows = transactionTemplate.execute(status -> {
+                if (databasePlatform.isPostgres()) {
+                    jdbcTemplate.execute("LOCK TABLE renovation_monthly_counts IN SHARE ROW EXCLUSIVE MODE");
+                }
+                jdbcTemplate.update("DELETE FROM renovation_monthly_counts");
+                return jdbcTemplate.update(BACKFILL_SQL);
+            });
+            backfill.set(job.finish(JobStatus.COMPLETED, rows == null ? 0 : rows));
+        } catch (RuntimeException e) {
+            logger.error("Renovation rollup backfill failed", e);
+            backfill.set(job.finish(JobStatus.FAILED, 0));
+        }
+    }
+
+    public RollupBackfillVO getBackfill() {
+        RollupBackfillVO job = backfill.get();
+        if (job == null) {
+            throw new CustomException("No renovation rollup backfill", ErrorCode.EntityNotFound);
+        }
+        return job;
+    }
+
+    /**
+     * Renovations per device for every passport and month in the range, optionally of one model only.
+     * The device count is the passport's current installed base.
+     */
+    public List<RenovationRateVO> getRates(YearMonth from, YearMonth to, String model) {
+        if (from.isAfter(to)) {
+            throw new CustomException("Start month must not be after end month", ErrorCode.Validation);
+        }
+
+        List<RenovationMonthlyCount> counts = renovationMonthlyCountRepository
+                .findByMonthStartBetweenOrderByMonthStartAscPassportIdAsc(from.atDay(1), to.atDay(1));
+
+        Map<Long, Long> devices = new HashMap<>();
+        List<RenovationRateVO> rates = new ArrayList<>(counts.size());
+        for (RenovationMonthlyCount count : counts) {
+            Passport passport = passportCatalog.get(count.getPassportId());
+            if (passport == null || (model != null && !model.equalsIgnoreCase(passport.getModel()))) {
+                continue;
+            }
+
+            long installed = devices.computeIfAbsent(passport.getId(), this::countDevices);
+            rates.add(new RenovationRateVO(
+                    passport.getId(),
+                    passport.getName(),
+                    passport.getModel(),
+                    YearMonth.from(count.getMonthStart()),
+                    count.getRenovations(),
+                    installed,
+                    installed == 0 ? 0 : (double) count.getRenovations() / installed
+            ));
+        }
+        return rates;
+    }
+
+    /**
+     * All devices of the passport. Read from the serial registry when it can answer for the passport and from
+     * the database otherwise, so a registry that is loading or rebuilding never fails the request.
+     */
+    private long countDevices(Long passportId) {
+        return serialRegistry.countDevices(passportId).orElseGet(() -> deviceRepository.countByPassportId(passportId));
+    }
+
+    public record Bucket(Long passportId, LocalDate monthStart) implements Comparable<Bucket> {
+        public static Bucket of(Long passportId, LocalDate renovationDate) {
+            if (passportId == null || renovationDate == null) {
+                return null;
+            }
+            return new Bucket(passportId, renovationDate.withDayOfMonth(1));
+        }
+
+        @Override
+        public int compareTo(Bucket other) {
+            int byPassport = passportId.compareTo(other.passportId);
+            return byPassport != 0 ? byPassport : monthStart.compareTo(other.monthStart);
+        }
+    }
+}
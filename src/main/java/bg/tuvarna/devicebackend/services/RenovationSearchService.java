@@ -0,0 +1,115 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.DatabasePlatform;
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.RenovationSearchVO;
+import bg.tuvarna.devicebackend.utils.CursorCodec;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Full-text search over renovation descriptions, best match first. On Postgres the descriptions are matched with
+ * {@code websearch_to_tsquery} against the {@code renovations_description_fts} GIN index and ranked with
+ * {@code ts_rank}; elsewhere (H2 in tests) every word has to occur in the description and all matches rank equally.
+ * Pages are cut by (rank, id) before the device and passport columns are joined.
+ */
+@Service
+@RequiredArgsConstructor
+public class RenovationSearchService {
+    public static final String DESCRIPTION_VECTOR = "to_tsvector('simple', coalesce(%s, ''))";
+
+    private static final String POSTGRES_MATCH_SQL = "SELECT r.id, r.description, r.renovation_date, r.device_serial_number, " +
+            "ts_rank(" + DESCRIPTION_VECTOR.formatted("r.description") + ", q) AS score " +
+            "FROM renovations r, websearch_to_tsquery('simple', ?) q " +
+            "WHERE " + DESCRIPTION_VECTOR.formatted("r.description") + " @@ q";
+    private static final String LIKE_MATCH_SQL = "SELECT r.id, r.description, r.renovation_date, r.device_serial_number, " +
+            "CAST(1 AS REAL) AS score FROM renovations r WHERE ";
+    private static final String LIKE_TERM_SQL = "LOWER(r.description) LIKE ? ESCAPE '\\'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+
+    public CustomPage<RenovationSearchVO> search(String query, String after, int size) {
+        if (size < 1) {
+            throw new CustomException("Page size must be positive", ErrorCode.Validation);
+        }
+        if (query == null || query.isBlank()) {
+            throw new CustomException("Search query is required", ErrorCode.Validation);
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT m.id, m.description, m.renovation_date, m.score, " +
+                "m.device_serial_number, d.warranty_expiration_date, p.name, p.model " +
+                "FROM (SELECT s.* FROM (");
+        sql.append(match(query.trim(), parameters)).append(") s");
+
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after, 2);
+            try {
+                float lastRank = Float.parseFloat(cursor[0]);
+                long lastId = Long.parseLong(cursor[1]);
+                sql.append(" WHERE s.score < ? OR (s.score = ? AND s.id < ?)");
+                parameters.addAll(List.of(lastRank, lastRank, lastId));
+            } catch (NumberFormatException e) {
+                throw new CustomException("Invalid cursor", ErrorCode.Validation);
+            }
+        }
+
+        sql.append(" ORDER BY s.score DESC, s.id DESC LIMIT ?) m " +
+                "LEFT JOIN devices d ON d.serial_number = m.device_serial_number " +
+                "LEFT JOIN passports p ON p.id = d.passport_id " +
+                "ORDER BY m.score DESC, m.id DESC");
+        parameters.add(size + 1);
+
+        List<RenovationSearchVO> results = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Date renovationDate = rs.getDate("renovation_date");
+            Date warrantyExpirationDate = rs.getDate("warranty_expiration_date");
+            return new RenovationSearchVO(
+                    rs.getLong("id"),
+                    rs.getString("description"),
+                    renovationDate == null ? null : renovationDate.toLocalDate(),
+                    rs.getFloat("score"),
+                    rs.getString("device_serial_number"),
+                    warrantyExpirationDate == null ? null : warrantyExpirationDate.toLocalDate(),
+                    rs.getString("name"),
+                    rs.getString("model")
+            );
+        }, parameters.toArray());
+
+        CustomPage<RenovationSearchVO> customPage = new CustomPage<>();
+        if (results.size() > size) {
+            results = results.subList(0, size);
+            RenovationSearchVO last = results.get(size - 1);
+            customPage.setNextCursor(CursorCodec.encode(last.rank(), last.id()));
+        }
+        customPage.setItems(results);
+        customPage.setSize(size);
+
+        return customPage;
+    }
+
+    private String match(String query, List<Object> parameters) {
+        if (databasePlatform.isPostgres()) {
+            parameters.add(query);
+            return POSTGRES_MATCH_SQL;
+        }
+
+        List<String> terms = Arrays.stream(query.toLowerCase().replace("\"", " ").split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .toList();
+        if (terms.isEmpty()) {
+            throw new CustomException("Search query is required", ErrorCode.Validation);
+        }
+
+        terms.forEach(term -> parameters.add('%' + term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + '%'));
+        return LIKE_MATCH_SQL + String.join(" AND ", terms.stream().map(term -> LIKE_TERM_SQL).toList());
+    }
+}
@@ -1,17 +1,33 @@
 package bg.tuvarna.devicebackend.services;
 
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
 import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import bg.tuvarna.devicebackend.utils.CursorCodec;
+import bg.tuvarna.devicebackend.utils.CustomPage;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
 public class RenovationService {
     private final RenovationRepository renovationRepository;
     private final DeviceService deviceService;
+    private final RenovationRollupService renovationRollupService;
+    private final TransactionTemplate transactionTemplate;
 
     public Renovation save(RenovationCreateVO vo) {
         Device device = deviceService.isDeviceExists(vo.deviceSerialNumber());
@@ -21,6 +37,75 @@ public class RenovationService {
         renovation.setDescription(vo.description());
         renovation.setRenovationDate(vo.renovationDate());
 
-        return renovationRepository.save(renovation);
+        Long passportId = device.getPassport() == null ? null : device.getPassport().getId();
+        Renovation saved = transactionTemplate.execute(status -> {
+            Renovation inserted = renovationRepository.save(renovation);
+            renovationRollupService.increment(passportId, vo.renovationDate());
+            return inserted;
+        });
+        deviceService.deviceChanged(device.getSerialNumber());
+        return saved;
+    }
+
+    /**
+     * The device with its renovation count and most recent dated renovation, read with two queries on the
+     * (device, date, id) index.
+     */
+    public DeviceVO toDeviceVO(Device device) {
+        String serialNumber = device.getSerialNumber();
+        long renovationCount = renovationRepository.countByDeviceSerialNumber(serialNumber);
+        List<Renovation> latest = renovationRepository.findDatedHistory(serialNumber, Limit.of(1));
+
+        return new DeviceVO(device, renovationCount, latest.isEmpty() ? null : latest.get(0));
+    }
+
+    /**
+     * Renovations of a device, newest first. Renovations without a date follow all dated ones,
+     * so the walk has two phases, each served by the (device, date, id) index.
+     */
+    public CustomPage<RenovationVO> getHistory(String serialNumber, String after, int size) {
+        if (size < 1) {
+            throw new CustomException("Page size must be positive", ErrorCode.Validation);
+        }
+
+        DeviceSummaryVO device = deviceService.getDeviceSummary(serialNumber);
+
+        LocalDate lastDate = null;
+        Long lastId = null;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = CursorCodec.decode(after, 2);
+            try {
+                lastDate = cursor[0].isEmpty() ? null : LocalDate.parse(cursor[0]);
+                lastId = Long.valueOf(cursor[1]);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new CustomException("Invalid cursor", ErrorCode.Validation);
+            }
+        }
+
+        List<Renovation> renovations = new ArrayList<>();
+        boolean inUndatedPhase = lastId != null && lastDate == null;
+        if (!inUndatedPhase) {
+            renovations.addAll(lastId == null
+                    ? renovationRepository.findDatedHistory(serialNumber, Limit.of(size + 1))
+                    : renovationRepository.findDatedHistoryBefore(serialNumber, lastDate, lastId, Limit.of(size + 1)));
+        }
+        if (renovations.size() <= size) {
+            renovations.addAll(renovationRepository.findUndatedHistoryBefore(
+                    serialNumber, inUndatedPhase ? lastId : Long.MAX_VALUE, Limit.of(size + 1 - renovations.size())
+            ));
+        }
+
+        CustomPage<RenovationVO> customPage = new CustomPage<>();
+        if (renovations.size() > size) {
+            renovations = renovations.subList(0, size);
+            Renovation last = renovations.get(size - 1);
+            customPage.setNextCursor(CursorCodec.encode(last.getRenovationDate(), last.getId()));
+        }
+        customPage.setItems(renovations.stream().map(renovation -> new RenovationVO(renovation, false)).toList());
+        customPage.setSize(size);
+        customPage.setTotalItems(device.renovationCount());
+        customPage.setTotalPages((int) ((device.renovationCount() + size - 1) / size));
+
+        return customPage;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,369 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.PassportUtilizationVO;
+import bg.tuvarna.devicebackend.models.dtos.RegisteredSerialRow;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.utils.CursorCodec;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.utils.SerialNumberParser;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Registered serial numbers kept as one Roaring bitmap of numeric suffixes per passport. Consecutive
+ * serials compress into runs, so tens of millions of devices take a few MB.
+ * <p>
+ * The bitmaps are loaded by a streaming scan after startup. Changes made while the scan runs are applied
+ * to the bitmaps and also logged, and the log is replayed when the scan ends, so a device deleted during
+ * the scan is not brought back by a row the scan had already read. Until then {@link #isReady()} is false
+ * and {@link #isRegistered} answers false, leaving the decision to the database.
+ * <p>
+ * A bitmap only holds suffixes, so it remembers the serial prefix it was built for. When a passport's prefix or
+ * range changes its bitmap is rebuilt with {@link #rebuild}; a bitmap whose prefix no longer matches the
+ * catalog (or that is being rebuilt) is never used to answer.
+ */
+@Service
+@RequiredArgsConstructor
+public class SerialRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(SerialRegistry.class);
+
+    private final DeviceRepository deviceRepository;
+    private final PassportCatalog passportCatalog;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Bits> bitmaps = new HashMap<>();
+    private final Map<Long, List<Change>> rebuilding = new HashMap<>();
+    private List<Change> pending = new ArrayList<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            bitmaps.clear();
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<RegisteredSerialRow> rows = deviceRepository.streamRegisteredSerials()) {
+                    rows.forEach(row -> {
+                        lock.writeLock().lock();
+                        try {
+                            apply(new Change(row.passportId(), row.serialNumber(), true));
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Loading the serial registry failed", e);
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(this::apply);
+            pending = null;
+            bitmaps.values().forEach(bits -> bits.bitmap().runOptimize());
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info("Serial registry loaded for {} passports in {} ms", bitmaps.size(), System.currentTimeMillis() - started);
+    }
+
+    public boolean isRegistered(String serialNumber) {
+        if (!ready) {
+            return false;
+        }
+
+        Passport passport = passportCatalog.find(serialNumber);
+        if (passport == null) {
+            return false;
+        }
+        int number = SerialNumberParser.parse(serialNumber, passport.getSerialPrefix());
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = current(passport);
+            return bitmap != null && number != SerialNumberParser.INVALID && bitmap.contains(number);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the bitmap of one passport from its devices, for use after its serial prefix or range changed.
+     * Runs in the background; until it is done the passport is answered as unknown. Changes made during the scan
+     * are held back and applied to the new bitmap. If the scan fails the passport stays unanswered until the next
+     * full {@link #load}.
+     */
+    @Async
+    public void rebuild(Long passportId) {
+        Passport passport = passportCatalog.get(passportId);
+
+        lock.writeLock().lock();
+        try {
+            bitmaps.remove(passportId);
+            rebuilding.put(passportId, new ArrayList<>());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+        boolean loaded = false;
+        try {
+            if (passport != null) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<String> serialNumbers = deviceRepository.streamSerialNumbersByPassportId(passportId)) {
+                        serialNumbers.forEach(serialNumber -> {
+                            int number = SerialNumberParser.parse(serialNumber, passport.getSerialPrefix());
+                            if (number != SerialNumberParser.INVALID) {
+                                bitmap.add(number);
+                            }
+                        });
+                    }
+                });
+            }
+            loaded = true;
+        } catch (RuntimeException e) {
+            logger.error("Rebuilding the serial registry of passport {} failed", passportId, e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<Change> changes = rebuilding.remove(passportId);
+                if (passport != null) {
+                    bitmap.runOptimize();
+                    bitmaps.put(passportId, new Bits(loaded ? passport.getSerialPrefix() : null, bitmap));
+                    changes.forEach(this::apply);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void deviceSaved(Device device) {
+        if (device.getPassport() != null) {
+            change(new Change(device.getPassport().getId(), device.getSerialNumber(), true));
+        }
+    }
+
+    /**
+     * Takes the passport the deleted device belonged to rather than looking it up by serial, since the
+     * passport's range may no longer contain the serial.
+     */
+    public void deviceDeleted(Long passportId, String serialNumber) {
+        if (passportId != null) {
+            change(new Change(passportId, serialNumber, false));
+        }
+    }
+
+    public PassportUtilizationVO getUtilization(Long passportId) {
+        Passport passport = findPassport(passportId);
+        long rangeSize = (long) passport.getToSerialNumber() - passport.getFromSerialNumber() + 1;
+
+        lock.readLock().lock();
+        try {
+            long registered = registeredInRange(passport);
+            return new PassportUtilizationVO(
+                    passportId, rangeSize, registered, rangeSize - registered, (double) registered / rangeSize
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of devices of the passport, in or out of its current range, or empty while the registry cannot
+     * answer for it (still loading, being rebuilt or stale).
+     */
+    public OptionalLong countDevices(Long passportId) {
+        Passport passport = passportCatalog.get(passportId);
+        if (!ready || passport == null) {
+            return OptionalLong.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = current(passport);
+            if (bitmap == null) {
+                return rebuilding.containsKey(passportId) || bitmaps.containsKey(passportId)
+                        ? OptionalLong.empty()
+                        : OptionalLong.of(0);
+            }
+            return OptionalLong.of(bitmap.getLongCardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Serial numbers of the passport's range that have no device, in ascending order.
+     */
+    public CustomPage<String> getUnregistered(Long passportId, String after, int size) {
+        if (size < 1) {
+            throw new CustomException("Page size must be positive", ErrorCode.Validation);
+        }
+
+        Passport passport = findPassport(passportId);
+        long next = after == null || after.isEmpty() ? passport.getFromSerialNumber() : CursorCodec.decodeLong(after) + 1;
+        next = Math.max(next, passport.getFromSerialNumber());
+
+        List<String> serialNumbers = new ArrayList<>(size);
+        long last = -1;
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = current(passport);
+            while (serialNumbers.size() < size && next <= passport.getToSerialNumber()) {
+                long absent = bitmap == null ? next : bitmap.nextAbsentValue((int) next);
+                if (absent > passport.getToSerialNumber()) {
+                    break;
+                }
+                serialNumbers.add(passport.getSerialPrefix() + absent);
+                last = absent;
+                next = absent + 1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        CustomPage<String> customPage = new CustomPage<>();
+        customPage.setItems(serialNumbers);
+        customPage.setSize(size);
+        if (serialNumbers.size() == size && last < passport.getToSerialNumber()) {
+            customPage.setNextCursor(CursorCodec.encode(last));
+        }
+
+        return customPage;
+    }
+
+    private Passport findPassport(Long passportId) {
+        if (!ready) {
+            throw new CustomException("Serial registry is still loading", ErrorCode.Failed);
+        }
+
+        Passport passport = passportCatalog.get(passportId);
+        if (passport == null) {
+            throw new CustomException("Passport not found", ErrorCode.EntityNotFound);
+        }
+
+        lock.readLock().lock();
+        try {
+            Bits bits = bitmaps.get(passportId);
+            if (rebuilding.containsKey(passportId) || (bits != null && !passport.getSerialPrefix().equals(bits.prefix()))) {
+                throw new CustomException("Serial registry is still loading", ErrorCode.Failed);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return passport;
+    }
+
+    /**
+     * The passport's bitmap if it may be used to answer, null when there is none or it is stale.
+     */
+    private RoaringBitmap current(Passport passport) {
+        if (rebuilding.containsKey(passport.getId())) {
+            return null;
+        }
+
+        Bits bits = bitmaps.get(passport.getId());
+        return bits != null && passport.getSerialPrefix().equals(bits.prefix()) ? bits.bitmap() : null;
+    }
+
+    private long registeredInRange(Passport passport) {
+        RoaringBitmap bitmap = current(passport);
+        return bitmap == null
+                ? 0
+                : bitmap.rangeCardinality(passport.getFromSerialNumber(), (long) passport.getToSerialNumber() + 1);
+    }
+
+    private void change(Change change) {
+        lock.writeLock().lock();
+        try {
+            List<Change> held = rebuilding.get(change.passportId());
+            if (held != null) {
+                held.add(change);
+            } else {
+                apply(change);
+            }
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Change change) {
+        Passport passport = passportCatalog.get(change.passportId());
+        if (passport == null) {
+            return;
+        }
+
+        int number = SerialNumberParser.parse(change.serialNumber(), passport.getSerialPrefix());
+        if (number == SerialNumberParser.INVALID) {
+            return;
+        }
+
+        Bits bits = bitmaps.get(change.passportId());
+        if (bits != null && !passport.getSerialPrefix().equals(bits.prefix())) {
+            return;
+        }
+
+        if (change.registered()) {
+            bitmaps.computeIfAbsent(change.passportId(), id -> new Bits(passport.getSerialPrefix(), new RoaringBitmap()))
+                    .bitmap().add(number);
+        } else if (bits != null) {
+            bits.bitmap().remove(number);
+        }
+    }
+
+    private record Bits(String prefix, RoaringBitmap bitmap) {
+    }
+
+    private record Change(Long passportId, String serialNumber, boolean registered) {
+    }
+}
@@ -0,0 +1,51 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import bg.tuvarna.devicebackend.models.entities.WarrantyReminder;
+import bg.tuvarna.devicebackend.repositories.WarrantyReminderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores reminders in {@code warranty_reminders}, once per device and expiration date, so the daily run
+ * does not repeat a reminder that an earlier run already recorded.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "warranty.reminders.sink", havingValue = "table")
+public class TableWarrantyReminderSink implements WarrantyReminderSink {
+    private final WarrantyReminderRepository warrantyReminderRepository;
+
+    @Override
+    public void publish(List<ExpiringWarrantyVO> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        LocalDate from = chunk.get(0).warrantyExpirationDate();
+        LocalDate to = chunk.get(chunk.size() - 1).warrantyExpirationDate();
+        Set<String> reminded = new HashSet<>();
+        warrantyReminderRepository.findBySerialNumberInAndWarrantyExpirationDateBetween(
+                chunk.stream().map(ExpiringWarrantyVO::serialNumber).toList(), from, to
+        ).forEach(reminder -> reminded.add(reminder.getSerialNumber() + "@" + reminder.getWarrantyExpirationDate()));
+
+        LocalDateTime now = LocalDateTime.now();
+        warrantyReminderRepository.saveAll(chunk.stream()
+                .filter(warranty -> !reminded.contains(warranty.serialNumber() + "@" + warranty.warrantyExpirationDate()))
+                .map(warranty -> WarrantyReminder.builder()
+                        .serialNumber(warranty.serialNumber())
+                        .warrantyExpirationDate(warranty.warrantyExpirationDate())
+                        .userId(warranty.userId())
+                        .ownerEmail(warranty.ownerEmail())
+                        .createdAt(now)
+                        .build())
+                .toList());
+    }
+}
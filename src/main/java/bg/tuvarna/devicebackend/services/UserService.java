@@ -16,6 +16,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +27,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final DeviceService deviceService;
+    private final AdminSearchIndex adminSearchIndex;
 
     public void register(UserCreateVO userCreateVO) {
         if (isEmailTaken(userCreateVO.email())) {
@@ -37,6 +41,7 @@ public class UserService {
 
         user.setPassword(passwordEncoder.encode(userCreateVO.password()));
         user = userRepository.saveAndFlush(user);
+        adminSearchIndex.userSaved(user);
 
         if (
                 userCreateVO.deviceSerialNumber() == null || userCreateVO.deviceSerialNumber().isBlank()
@@ -46,10 +51,11 @@ public class UserService {
         }
 
         try {
-            deviceService.alreadyExist(userCreateVO.deviceSerialNumber());
             deviceService.registerDevice(userCreateVO.deviceSerialNumber(), userCreateVO.purchaseDate(), user);
         } catch (CustomException e) {
+            List<String> serialNumbers = userRepository.findDeviceSerialNumbers(user.getId());
             userRepository.delete(user);
+            adminSearchIndex.userDeleted(user.getId(), serialNumbers);
             throw e;
         }
     }
@@ -73,6 +79,10 @@ public class UserService {
     }
 
     public CustomPage<UserListing> getUsers(String searchBy, int page, int size) {
+        if (searchBy != null && adminSearchIndex.isReady()) {
+            return getIndexedUsers(searchBy, PageRequest.of(page - 1, size));
+        }
+
         Page<User> userPage;
         if (searchBy == null) {
             userPage = userRepository.getAllUsers(PageRequest.of(page - 1, size));
@@ -86,7 +96,31 @@ public class UserService {
         customPage.setSize(userPage.getSize());
         customPage.setTotalItems(userPage.getTotalElements());
 
-        customPage.setItems(userPage
+        customPage.setItems(toListings(userPage.getContent(), searchBy));
+
+        return customPage;
+    }
+
+    private CustomPage<UserListing> getIndexedUsers(String searchBy, PageRequest pageRequest) {
+        List<Long> ids = adminSearchIndex.searchUsers(searchBy);
+        int from = (int) Math.min(pageRequest.getOffset(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageRequest.getPageSize(), ids.size()));
+
+        List<User> users = new ArrayList<>(userRepository.findAllById(pageIds));
+        users.sort(Comparator.comparing(User::getId));
+
+        CustomPage<UserListing> customPage = new CustomPage<>();
+        customPage.setTotalPages((ids.size() + pageRequest.getPageSize() - 1) / pageRequest.getPageSize());
+        customPage.setCurrentPage(pageRequest.getPageNumber() + 1);
+        customPage.setSize(pageRequest.getPageSize());
+        customPage.setTotalItems(ids.size());
+        customPage.setItems(toListings(users, searchBy));
+
+        return customPage;
+    }
+
+    private List<UserListing> toListings(List<User> users, String searchBy) {
+        return users
                 .stream()
                 .peek(user -> {
                             if (searchBy != null) {
@@ -97,10 +131,7 @@ public class UserService {
                         }
                 )
                 .map(UserListing::new)
-                .toList()
-        );
-
-        return customPage;
+                .toList();
     }
 
     public User updateUser(Long id, UserUpdateVO userUpdateVO) {
@@ -123,7 +154,9 @@ public class UserService {
         user.setPhone(userUpdateVO.phone());
         user.setEmail(userUpdateVO.email());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        adminSearchIndex.userSaved(saved);
+        return saved;
     }
 
     public void updatePassword(Long id, ChangePasswordVO passwordVO) {
@@ -0,0 +1,139 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.WarrantyRecalculationVO;
+import bg.tuvarna.devicebackend.models.enums.JobStatus;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recomputes {@code warrantyExpirationDate} of every device of a passport after its warranty changed.
+ * All devices of a passport bought on the same day share the new date, so the work is set-based UPDATEs
+ * per purchase date (and owner state) instead of one load and save per device, each bounded to a keyset
+ * chunk of serial numbers. The UPDATEs only apply while the passport still has the job's warranty, so a
+ * superseded job that is still running cannot overwrite what a newer one wrote; it notices and stops at its
+ * next chunk.
+ */
+@Service
+@RequiredArgsConstructor
+public class WarrantyRecalculationService {
+    private static final Logger logger = LoggerFactory.getLogger(WarrantyRecalculationService.class);
+    private static final int REGISTERED_USER_BONUS_MONTHS = 12;
+    private static final int CHUNK_SIZE = 1000;
+
+    private final DeviceRepository deviceRepository;
+    private final PassportRepository passportRepository;
+    private final DeviceSummaryCache deviceSummaryCache;
+
+    private final Map<Long, WarrantyRecalculationVO> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong jobIds = new AtomicLong();
+
+    /**
+     * Registers a recalculation for a warranty that was just saved. Called on the request thread, so the job
+     * shows up in {@link #getProgress} at once; the work itself is done by {@link #recalculate}.
+     */
+    public WarrantyRecalculationVO start(Long passportId, int warrantyMonths) {
+        WarrantyRecalculationVO job = new WarrantyRecalculationVO(
+                jobIds.incrementAndGet(), passportId, warrantyMonths, JobStatus.RUNNING, 0, 0, 0, LocalDateTime.now()
+        );
+        jobs.put(passportId, job);
+        return job;
+    }
+
+    /**
+     * Runs a job from {@link #start}. The job is superseded, and stops, as soon as the passport no longer has the
+     * job's warranty, whatever order concurrent jobs were started or picked up in.
+     */
+    @Async
+    public void recalculate(WarrantyRecalculationVO job) {
+        Long passportId = job.passportId();
+        int warrantyMonths = job.warrantyMonths();
+
+        try {
+            List<LocalDate> purchaseDates = deviceRepository.findPurchaseDatesByPassportId(passportId);
+            job = job.planned(purchaseDates.size());
+            publish(job);
+
+            long updated = 0;
+            for (int i = 0; i < purchaseDates.size(); i++) {
+                LocalDate purchaseDate = purchaseDates.get(i);
+                LocalDate anonymousWarranty = purchaseDate.plusMonths(warrantyMonths);
+                LocalDate registeredWarranty = anonymousWarranty.plusMonths(REGISTERED_USER_BONUS_MONTHS);
+
+                String afterSerialNumber = "";
+                List<String> chunk;
+                do {
+                    if (superseded(job)) {
+                        logger.info("Warranty recalculation {} for passport {} superseded", job.jobId(), passportId);
+                        publish(job.finish(JobStatus.SUPERSEDED));
+                        return;
+                    }
+
+                    chunk = deviceRepository.findSerialNumbersByPurchaseDate(
+                            passportId, purchaseDate, afterSerialNumber, Limit.of(CHUNK_SIZE)
+                    );
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+
+                    String lastSerialNumber = chunk.get(chunk.size() - 1);
+                    updated += deviceRepository.updateWarrantyOfAnonymousDevices(
+                            passportId, purchaseDate, afterSerialNumber, lastSerialNumber, warrantyMonths, anonymousWarranty
+                    );
+                    updated += deviceRepository.updateWarrantyOfRegisteredDevices(
+                            passportId, purchaseDate, afterSerialNumber, lastSerialNumber, warrantyMonths, registeredWarranty
+                    );
+                    afterSerialNumber = lastSerialNumber;
+                } while (chunk.size() == CHUNK_SIZE);
+
+                job = job.progress(i + 1, updated);
+                publish(job);
+            }
+
+            publish(job.finish(superseded(job) ? JobStatus.SUPERSEDED : JobStatus.COMPLETED));
+        } catch (RuntimeException e) {
+            logger.error("Warranty recalculation for passport {} failed", passportId, e);
+            publish(job.finish(JobStatus.FAILED));
+        } finally {
+            deviceSummaryCache.invalidateAll();
+        }
+    }
+
+    private boolean superseded(WarrantyRecalculationVO job) {
+        return passportRepository.findWarrantyMonthsById(job.passportId())
+                .map(warrantyMonths -> warrantyMonths != job.warrantyMonths())
+                .orElse(true);
+    }
+
+    public WarrantyRecalculationVO getProgress(Long passportId) {
+        WarrantyRecalculationVO job = jobs.get(passportId);
+        if (job == null) {
+            throw new CustomException("No warranty recalculation for passport", ErrorCode.EntityNotFound);
+        }
+        return job;
+    }
+
+    /**
+     * Updates the job shown for the passport. A superseded job gives its place to a job that is still working,
+     * so progress stays visible when two jobs were started in the opposite order of their saves.
+     */
+    private void publish(WarrantyRecalculationVO job) {
+        jobs.computeIfPresent(job.passportId(), (id, current) ->
+                current.jobId() == job.jobId() || current.status() == JobStatus.SUPERSEDED ? job : current
+        );
+    }
+}
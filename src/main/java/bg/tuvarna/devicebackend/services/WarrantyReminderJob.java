@@ -0,0 +1,69 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Publishes the devices whose warranty expires within {@code warranty.reminders.days} days. The window is
+ * read in keyset chunks of {@code warranty.reminders.chunk-size} and each chunk is handed to the sink
+ * before the next one is loaded.
+ */
+@Component
+@ConditionalOnProperty(name = "warranty.reminders.enabled", havingValue = "true")
+public class WarrantyReminderJob {
+    private static final Logger logger = LoggerFactory.getLogger(WarrantyReminderJob.class);
+
+    private final DeviceRepository deviceRepository;
+    private final WarrantyReminderSink warrantyReminderSink;
+    private final int days;
+    private final int chunkSize;
+
+    public WarrantyReminderJob(
+            DeviceRepository deviceRepository,
+            WarrantyReminderSink warrantyReminderSink,
+            @Value("${warranty.reminders.days:30}") int days,
+            @Value("${warranty.reminders.chunk-size:500}") int chunkSize
+    ) {
+        this.deviceRepository = deviceRepository;
+        this.warrantyReminderSink = warrantyReminderSink;
+        this.days = days;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${warranty.reminders.cron:0 0 6 * * *}")
+    public void run() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(days);
+
+        LocalDate afterDate = from.minusDays(1);
+        String afterSerialNumber = "";
+        long published = 0;
+
+        List<ExpiringWarrantyVO> chunk;
+        do {
+            chunk = deviceRepository.findExpiringWarranties(from, to, afterDate, afterSerialNumber, Limit.of(chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            warrantyReminderSink.publish(chunk);
+            published += chunk.size();
+
+            ExpiringWarrantyVO last = chunk.get(chunk.size() - 1);
+            afterDate = last.warrantyExpirationDate();
+            afterSerialNumber = last.serialNumber();
+        } while (chunk.size() == chunkSize);
+
+        logger.info("Published {} warranty reminders for {} - {}", published, from, to);
+    }
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+
+import java.util.List;
+
+/**
+ * Destination of the warranty reminders found by {@link WarrantyReminderJob}. Exactly one implementation is
+ * active, chosen by {@code warranty.reminders.sink} ({@code log}, {@code file} or {@code table}).
+ */
+public interface WarrantyReminderSink {
+    void publish(List<ExpiringWarrantyVO> chunk);
+}
@@ -0,0 +1,52 @@
+package bg.tuvarna.devicebackend.utils;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Opaque keyset cursors: the sort key values of the last returned row, base64url encoded.
+ */
+public final class CursorCodec {
+    private static final String SEPARATOR = "\u001F";
+    private static final Pattern SPLITTER = Pattern.compile(SEPARATOR);
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Object... values) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(values[i] == null ? "" : values[i]);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int parts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] values = SPLITTER.split(raw, -1);
+            if (values.length == parts) {
+                return values;
+            }
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        throw new CustomException("Invalid cursor", ErrorCode.Validation);
+    }
+
+    public static long decodeLong(String cursor) {
+        try {
+            return Long.parseLong(decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new CustomException("Invalid cursor", ErrorCode.Validation);
+        }
+    }
+}
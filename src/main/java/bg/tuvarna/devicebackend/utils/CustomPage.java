@@ -15,4 +15,5 @@ public class CustomPage<T> {
     private int size;
     private long totalItems;
     private List<T> items;
+    private String nextCursor;
 }
\ No newline at end of file
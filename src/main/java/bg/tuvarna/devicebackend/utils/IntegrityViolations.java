@@ -0,0 +1,60 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Tells apart the integrity violations behind a {@link DataIntegrityViolationException}, which Spring
+ * raises alike for duplicate keys, missing foreign key parents and violated check or exclusion constraints.
+ */
+public final class IntegrityViolations {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+    private static final String H2_PARENT_MISSING = "23506";
+
+    private IntegrityViolations() {
+    }
+
+    public static boolean isDuplicateKey(DataIntegrityViolationException e) {
+        return hasSqlState(e, UNIQUE_VIOLATION);
+    }
+
+    /**
+     * Whether a referenced row is missing. H2 reports this as 23506 and keeps 23503 for deleting a parent
+     * that is still referenced, which an insert cannot cause.
+     */
+    public static boolean isMissingParent(DataIntegrityViolationException e) {
+        return hasSqlState(e, FOREIGN_KEY_VIOLATION) || hasSqlState(e, H2_PARENT_MISSING);
+    }
+
+    /**
+     * Whether the named constraint was violated. Hibernate's extracted constraint name is used when
+     * there is one; otherwise the database message is searched for the name.
+     */
+    public static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().equalsIgnoreCase(constraint)) {
+                return true;
+            }
+        }
+
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase().contains(constraint.toLowerCase());
+    }
+
+    private static boolean hasSqlState(Throwable e, String sqlState) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                for (SQLException next = sqlException; next != null; next = next.getNextException()) {
+                    if (sqlState.equals(next.getSQLState())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
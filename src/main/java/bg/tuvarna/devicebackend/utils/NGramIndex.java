@@ -0,0 +1,306 @@
+package bg.tuvarna.devicebackend.utils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Case-insensitive substring index over short texts. Every document gets an int id in insertion order and is
+ * added to the posting list of each of its trigrams and bigrams, so posting lists are sorted int arrays that only
+ * grow at the end. A search intersects the lists of the term's trigrams and checks the few candidates against
+ * the text. Two character terms use their bigram's list and single characters the lists of the bigrams that
+ * contain them, so no term falls back to a scan of all documents.
+ * Updates append a new id and tombstone the old one; dead ids are dropped once they outnumber the live ones.
+ * <p>
+ * Each document may also carry a group (e.g. its passport id) with its own posting list, and a payload
+ * (e.g. its owner id) that searches can return instead of the key. Negative values mean none.
+ */
+public final class NGramIndex<K> {
+    private static final int GRAM = 3;
+    private static final long BIGRAM = 1L << 48;
+    private static final char NO_CHAR = '\0';
+    private static final int MIN_DEAD_FOR_COMPACTION = 100_000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<K, Integer> docIds = new HashMap<>();
+    private final ArrayList<K> keys = new ArrayList<>();
+    private final ArrayList<String> texts = new ArrayList<>();
+    private long[] groups = new long[1024];
+    private long[] payloads = new long[1024];
+    private final BitSet live = new BitSet();
+    private int dead;
+
+    private final Map<Long, IntList> grams = new HashMap<>();
+    private final Map<Long, IntList> groupDocs = new HashMap<>();
+
+    public void put(K key, String text, long group, long payload) {
+        lock.writeLock().lock();
+        try {
+            kill(key);
+            add(key, text.toLowerCase(), group, payload);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            kill(key);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keys of documents whose text contains {@code term} or whose group is one of {@code matchingGroups}.
+     */
+    public List<K> searchKeys(String term, Collection<Long> matchingGroups) {
+        lock.readLock().lock();
+        try {
+            List<K> result = new ArrayList<>();
+            match(term.toLowerCase(), matchingGroups).stream().forEach(doc -> result.add(keys.get(doc)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct non-negative payloads of the documents {@link #searchKeys} would return.
+     */
+    public Set<Long> searchPayloads(String term, Collection<Long> matchingGroups) {
+        lock.readLock().lock();
+        try {
+            Set<Long> result = new HashSet<>();
+            match(term.toLowerCase(), matchingGroups).stream().forEach(doc -> {
+                if (payloads[doc] >= 0) {
+                    result.add(payloads[doc]);
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet match(String term, Collection<Long> matchingGroups) {
+        BitSet result = new BitSet();
+
+        if (term.isEmpty()) {
+            result.or(live);
+        } else if (term.length() == 1) {
+            char c = term.charAt(0);
+            grams.forEach((gram, list) -> {
+                if ((gram & BIGRAM) != 0 && (first(gram) == c || second(gram) == c)) {
+                    list.forEach(doc -> {
+                        if (live.get(doc)) {
+                            result.set(doc);
+                        }
+                    });
+                }
+            });
+        } else if (term.length() == 2) {
+            IntList list = grams.get(bigram(term.charAt(0), term.charAt(1)));
+            if (list != null) {
+                list.forEach(doc -> {
+                    if (live.get(doc) && texts.get(doc).contains(term)) {
+                        result.set(doc);
+                    }
+                });
+            }
+        } else {
+            intersect(term, doc -> {
+                if (live.get(doc) && texts.get(doc).contains(term)) {
+                    result.set(doc);
+                }
+            });
+        }
+
+        for (Long group : matchingGroups) {
+            IntList docs = groupDocs.get(group);
+            if (docs != null) {
+                docs.forEach(doc -> {
+                    if (live.get(doc)) {
+                        result.set(doc);
+                    }
+                });
+            }
+        }
+
+        return result;
+    }
+
+    private void intersect(String term, IntConsumer candidates) {
+        Set<Long> termGrams = trigrams(term);
+        IntList[] lists = new IntList[termGrams.size()];
+        int i = 0;
+        for (Long gram : termGrams) {
+            IntList list = grams.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists[i++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+
+        IntList smallest = lists[0];
+        for (int j = 0; j < smallest.size(); j++) {
+            int doc = smallest.get(j);
+            boolean inAll = true;
+            for (int k = 1; k < lists.length && inAll; k++) {
+                inAll = lists[k].contains(doc);
+            }
+            if (inAll) {
+                candidates.accept(doc);
+            }
+        }
+    }
+
+    private void add(K key, String text, long group, long payload) {
+        int doc = keys.size();
+        keys.add(key);
+        texts.add(text);
+        if (doc == groups.length) {
+            groups = Arrays.copyOf(groups, doc * 2);
+            payloads = Arrays.copyOf(payloads, doc * 2);
+        }
+        groups[doc] = group;
+        payloads[doc] = payload;
+        live.set(doc);
+        docIds.put(key, doc);
+
+        for (Long gram : grams(text)) {
+            grams.computeIfAbsent(gram, g -> new IntList()).add(doc);
+        }
+        if (group >= 0) {
+            groupDocs.computeIfAbsent(group, g -> new IntList()).add(doc);
+        }
+    }
+
+    private void kill(K key) {
+        Integer doc = docIds.remove(key);
+        if (doc != null) {
+            live.clear(doc);
+            texts.set(doc, null);
+            dead++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (dead < MIN_DEAD_FOR_COMPACTION || dead < docIds.size()) {
+            return;
+        }
+
+        List<K> liveKeys = new ArrayList<>();
+        List<String> liveTexts = new ArrayList<>();
+        long[] liveGroups = new long[docIds.size()];
+        long[] livePayloads = new long[docIds.size()];
+        live.stream().forEach(doc -> {
+            liveGroups[liveKeys.size()] = groups[doc];
+            livePayloads[liveKeys.size()] = payloads[doc];
+            liveKeys.add(keys.get(doc));
+            liveTexts.add(texts.get(doc));
+        });
+
+        reset();
+        for (int i = 0; i < liveKeys.size(); i++) {
+            add(liveKeys.get(i), liveTexts.get(i), liveGroups[i], livePayloads[i]);
+        }
+    }
+
+    private void reset() {
+        docIds.clear();
+        keys.clear();
+        texts.clear();
+        groups = new long[1024];
+        payloads = new long[1024];
+        live.clear();
+        grams.clear();
+        groupDocs.clear();
+        dead = 0;
+    }
+
+    private static Set<Long> grams(String text) {
+        Set<Long> result = trigrams(text);
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            result.add(bigram(text.charAt(i), text.charAt(i + 1)));
+        }
+        if (text.length() == 1) {
+            result.add(bigram(text.charAt(0), NO_CHAR));
+        }
+        return result;
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return result;
+    }
+
+    private static long bigram(char first, char second) {
+        return BIGRAM | ((long) first << 16) | second;
+    }
+
+    private static char first(long bigram) {
+        return (char) (bigram >>> 16);
+    }
+
+    private static char second(long bigram) {
+        return (char) bigram;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        void forEach(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package bg.tuvarna.devicebackend.utils;
+
+/**
+ * Splits a serial id into its prefix and numeric suffix in place. No regex, substring or
+ * exception is involved; a malformed suffix is reported by returning {@link #INVALID}.
+ */
+public final class SerialNumberParser {
+    public static final int INVALID = -1;
+
+    private SerialNumberParser() {
+    }
+
+    public static int parse(String serialId, String serialPrefix) {
+        if (serialId == null || serialPrefix == null || !serialId.startsWith(serialPrefix)) {
+            return INVALID;
+        }
+        return parseSuffix(serialId, serialPrefix.length());
+    }
+
+    public static int parseSuffix(CharSequence serialId, int offset) {
+        int length = serialId.length();
+        if (offset < 0 || offset >= length) {
+            return INVALID;
+        }
+
+        int value = 0;
+        for (int i = offset; i < length; i++) {
+            int digit = serialId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            if (value > (Integer.MAX_VALUE - digit) / 10) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,151 @@
+package bg.tuvarna.devicebackend.utils;
+
+import bg.tuvarna.devicebackend.models.entities.Passport;
+
+import java.util.*;
+
+/**
+ * Immutable lookup structure over passport serial ranges.
+ * Serial prefixes form a compact trie whose nodes hold the ranges of that prefix sorted by
+ * {@code fromSerialNumber}. A serial is resolved in one walk: the deepest prefix whose ranges
+ * contain the numeric suffix wins, shorter prefixes are only tried when it does not match.
+ */
+public final class SerialRangeIndex {
+    public static final SerialRangeIndex EMPTY = new SerialRangeIndex(new Node(new char[0], new Node[0], null), 0);
+
+    private final Node root;
+    private final int size;
+
+    private SerialRangeIndex(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static SerialRangeIndex of(Collection<Passport> passports) {
+        NodeBuilder root = new NodeBuilder();
+        int size = 0;
+
+        for (Passport passport : passports) {
+            String prefix = passport.getSerialPrefix();
+            if (prefix == null || prefix.isEmpty()) {
+                continue;
+            }
+
+            NodeBuilder node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new NodeBuilder());
+            }
+            node.ranges.add(passport);
+            size++;
+        }
+
+        return new SerialRangeIndex(root.build(), size);
+    }
+
+    public Passport find(String serialId) {
+        if (serialId == null || serialId.isEmpty()) {
+            return null;
+        }
+        return resolve(root, serialId, 0);
+    }
+
+    public boolean overlaps(String serialPrefix, int fromSerialNumber, int toSerialNumber, Long excludedId) {
+        Node node = root;
+        for (int i = 0; i < serialPrefix.length() && node != null; i++) {
+            node = node.child(serialPrefix.charAt(i));
+        }
+
+        if (node == null || node.ranges == null) {
+            return false;
+        }
+
+        for (int i = floor(node.ranges, toSerialNumber); i >= 0; i--) {
+            Passport range = node.ranges[i];
+            if (!Objects.equals(range.getId(), excludedId)) {
+                return range.getToSerialNumber() >= fromSerialNumber;
+            }
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Passport resolve(Node node, String serialId, int depth) {
+        if (depth >= serialId.length()) {
+            return null;
+        }
+
+        Node child = node.child(serialId.charAt(depth));
+        if (child != null) {
+            Passport passport = resolve(child, serialId, depth + 1);
+            if (passport != null) {
+                return passport;
+            }
+        }
+
+        if (node.ranges == null) {
+            return null;
+        }
+
+        int serialNumber = SerialNumberParser.parseSuffix(serialId, depth);
+        if (serialNumber == SerialNumberParser.INVALID) {
+            return null;
+        }
+
+        int position = floor(node.ranges, serialNumber);
+        return position >= 0 && serialNumber <= node.ranges[position].getToSerialNumber() ? node.ranges[position] : null;
+    }
+
+    private static int floor(Passport[] ranges, int serialNumber) {
+        int low = 0;
+        int high = ranges.length - 1;
+        int candidate = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranges[mid].getFromSerialNumber() <= serialNumber) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return candidate;
+    }
+
+    private record Node(char[] labels, Node[] children, Passport[] ranges) {
+        Node child(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            return position >= 0 ? children[position] : null;
+        }
+    }
+
+    private static final class NodeBuilder {
+        private final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+        private final List<Passport> ranges = new ArrayList<>();
+
+        private Node build() {
+            char[] labels = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+
+            Passport[] sorted = null;
+            if (!ranges.isEmpty()) {
+                sorted = ranges.toArray(new Passport[0]);
+                Arrays.sort(sorted, Comparator.comparingInt(Passport::getFromSerialNumber));
+            }
+
+            return new Node(labels, nodes, sorted);
+        }
+    }
+}
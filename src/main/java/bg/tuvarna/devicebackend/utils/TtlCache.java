@@ -0,0 +1,97 @@
+package bg.tuvarna.devicebackend.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded least-recently-used cache whose entries also expire some time after they were loaded, either a fixed
+ * time or one chosen per value.
+ * Loading happens outside the lock; a value loaded while any key was invalidated is returned but not
+ * stored, so an invalidation can never be overwritten by a load that read the old state.
+ */
+public final class TtlCache<K, V> {
+    private final int maxSize;
+    private final Function<V, Duration> ttl;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TtlCache(int maxSize, Duration ttl) {
+        this(maxSize, value -> ttl);
+    }
+
+    public TtlCache(int maxSize, Function<V, Duration> ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        long now = System.nanoTime();
+        long generation;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - now > 0) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+            generation = invalidations;
+        }
+
+        misses.increment();
+        V value = loader.apply(key);
+        long ttlNanos = ttl.apply(value).toNanos();
+
+        synchronized (this) {
+            if (generation == invalidations) {
+                entries.put(key, new Entry<>(value, now + ttlNanos));
+                Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+                while (entries.size() > maxSize && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,217 @@
+package bg.tuvarna.devicebackend.api;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import bg.tuvarna.devicebackend.services.DeviceImportService;
+import bg.tuvarna.devicebackend.services.PassportCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DeviceApiTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PassportCatalog passportCatalog;
+
+    private String jwtToken;
+
+    private Passport passport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+
+        User admin = User.builder()
+                .fullName("Admin")
+                .email("admin@abv.bg")
+                .password(passwordEncoder.encode("Admin123$"))
+                .role(UserRole.ADMIN)
+                .build();
+        userRepository.save(admin);
+
+        passport = passportRepository.save(Passport.builder()
+                .name("Bulk")
+                .model("BModel")
+                .serialPrefix("BK")
+                .fromSerialNumber(1)
+                .toSerialNumber(100)
+                .warrantyMonths(12)
+                .build());
+
+        MvcResult login = mvc.perform(post("/api/v1/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                              "username": "admin@abv.bg",
+                              "password": "Admin123$"
+                            }
+                        """))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        jwtToken = mapper.readTree(login.getResponse().getContentAsString()).get("token").asText();
+        assertNotNull(jwtToken);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deviceRepository.deleteAll();
+        passportRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void bulkRegisterReportsEveryItem() throws Exception {
+        Device existing = new Device();
+        existing.setSerialNumber("BK2");
+        existing.setPassport(passport);
+        deviceRepository.save(existing);
+
+        String body = """
+            [
+              {"deviceSerialNumber": "BK1", "purchaseDate": "2024-01-10"},
+              {"deviceSerialNumber": "BK1", "purchaseDate": "2024-01-10"},
+              {"deviceSerialNumber": "ZZ1", "purchaseDate": "2024-01-10"},
+              {"deviceSerialNumber": "BK3"},
+              {"deviceSerialNumber": "BK2", "purchaseDate": "2024-01-10"}
+            ]
+            """;
+
+        mvc.perform(post("/api/v1/devices/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("ALREADY_EXISTS"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[3].status").value("INVALID"))
+                .andExpect(jsonPath("$[4].status").value("ALREADY_EXISTS"));
+
+        Device created = deviceRepository.findById("BK1").orElseThrow();
+        assertEquals(LocalDate.of(2025, 1, 10), created.getWarrantyExpirationDate());
+        assertNull(created.getUser());
+    }
+
+    @Test
+    void bulkRegisterReportsDeletedPassportAsNotFound() throws Exception {
+        // Deleted behind the catalog's back, so only the foreign key notices.
+        jdbcTemplate.update("DELETE FROM passports WHERE id = ?", passport.getId());
+
+        try {
+            mvc.perform(post("/api/v1/devices/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Authorization", "Bearer " + jwtToken)
+                            .content("""
+                                [{"deviceSerialNumber": "BK7", "purchaseDate": "2024-01-10"}]
+                                """))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value("NOT_FOUND"))
+                    .andExpect(jsonPath("$[0].message").value("Passport not found"));
+        } finally {
+            passportCatalog.reload();
+        }
+    }
+
+    @Test
+    void bulkRegisterRejectsTooManyItems() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i <= DeviceImportService.MAX_DEVICES; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"deviceSerialNumber\": \"BK1\"}");
+        }
+        body.append(']');
+
+        mvc.perform(post("/api/v1/devices/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(body.toString()))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, deviceRepository.count());
+    }
+
+    @Test
+    void exportStreamsMatchingDevicesAsCsv() throws Exception {
+        for (String serialNumber : new String[]{"BK5", "BK6"}) {
+            Device device = new Device();
+            device.setSerialNumber(serialNumber);
+            device.setPurchaseDate(LocalDate.of(2024, 2, 1));
+            device.setComment("box, opened");
+            device.setPassport(passport);
+            deviceRepository.save(device);
+        }
+
+        MvcResult result = mvc.perform(get("/api/v1/devices/export")
+                        .param("format", "csv")
+                        .param("searchBy", "bk6")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        assertEquals("""
+                serialNumber,purchaseDate,warrantyExpirationDate,comment,passportName,passportModel,ownerName,renovationCount
+                BK6,2024-02-01,,"box, opened",Bulk,BModel,,0
+                """, result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void exportRejectsUnknownFormat() throws Exception {
+        mvc.perform(get("/api/v1/devices/export")
+                        .param("format", "xml")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -145,6 +145,41 @@ class PassportApiTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getPassportsByCursorWalksAllPages() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            passportRepository.save(Passport.builder()
+                    .name("Cursor " + i)
+                    .model("CModel")
+                    .serialPrefix("CU" + i)
+                    .fromSerialNumber(1)
+                    .toSerialNumber(10)
+                    .warrantyMonths(12)
+                    .build());
+        }
+
+        MvcResult first = mvc.perform(get("/api/v1/passports")
+                        .param("after", "")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.totalItems").value(3))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn();
+
+        String cursor = mapper.readTree(first.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mvc.perform(get("/api/v1/passports")
+                        .param("after", cursor)
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Cursor 2"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
     @Test
     void deletePassportSuccess() throws Exception {
         Passport passport = Passport.builder()
@@ -181,4 +216,89 @@ class PassportApiTests {
                 .andExpect(jsonPath("$.name").value("SerialTest"))
                 .andExpect(jsonPath("$.model").value("SModel"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPassportsBySerialIdsMarksUnknownSerials() throws Exception {
+        Passport passport = Passport.builder()
+                .name("BatchTest")
+                .model("BModel")
+                .serialPrefix("BT")
+                .fromSerialNumber(1)
+                .toSerialNumber(50)
+                .warrantyMonths(12)
+                .build();
+        passportRepository.save(passport);
+
+        mvc.perform(post("/api/v1/passports/getBySerialIds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                              "serialIds": ["BT10", "BT99", "XX1"]
+                            }
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].serialId").value("BT10"))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].passport.name").value("BatchTest"))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[2].found").value(false));
+    }
+
+    @Test
+    void getPassportBySerialIdUnknownSerial() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/passports/getBySerialId/NOPE123"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        ErrorResponse error = mapper.readValue(result.getResponse().getContentAsString(), ErrorResponse.class);
+        assertEquals("Passport not found for serial number: NOPE123", error.getError());
+    }
+
+    @Test
+    void importPassportsReportsEveryRow() throws Exception {
+        String csv = """
+                name,model,serialPrefix,warrantyMonths,fromSerialNumber,toSerialNumber
+                Import A,IM1,IM,12,1,100
+                Import B,IM2,IM,12,50,150
+                Import C,IM3,IM,12,101,200
+                Broken,IM4,IM,twelve,1,2
+                """;
+
+        mvc.perform(post("/api/v1/passports/import")
+                        .contentType("text/csv")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].row").value(2))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("OVERLAP"))
+                .andExpect(jsonPath("$[2].status").value("CREATED"))
+                .andExpect(jsonPath("$[3].status").value("INVALID"));
+
+        assertEquals(2, passportRepository.count());
+    }
+
+    @Test
+    void importPassportsFindsOverlapsAcrossBatches() throws Exception {
+        StringBuilder csv = new StringBuilder("name,model,serialPrefix,warrantyMonths,fromSerialNumber,toSerialNumber\n");
+        for (int i = 0; i < 1001; i++) {
+            csv.append("Batch,BT,BT,12,").append(i * 10 + 1).append(',').append(i * 10 + 10).append('\n');
+        }
+        csv.append("Late,BT,BT,12,5,7\n");
+
+        mvc.perform(post("/api/v1/passports/import")
+                        .contentType("text/csv")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1002))
+                .andExpect(jsonPath("$[1000].status").value("CREATED"))
+                .andExpect(jsonPath("$[1001].row").value(1003))
+                .andExpect(jsonPath("$[1001].status").value("OVERLAP"))
+                .andExpect(jsonPath("$[1001].message").value("Overlaps row 2"));
+
+        assertEquals(1001, passportRepository.count());
+        mvc.perform(get("/api/v1/passports/getBySerialId/BT10005"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,313 @@
+package bg.tuvarna.devicebackend.api;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationMonthlyCountRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RenovationApiTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private RenovationRepository renovationRepository;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @Autowired
+    private RenovationMonthlyCountRepository renovationMonthlyCountRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private String jwtToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+
+        userRepository.save(User.builder()
+                .fullName("Admin")
+                .email("admin@abv.bg")
+                .password(passwordEncoder.encode("Admin123$"))
+                .role(UserRole.ADMIN)
+                .build());
+
+        Passport passport = passportRepository.save(Passport.builder()
+                .name("Renovated")
+                .model("RModel")
+                .serialPrefix("RN")
+                .fromSerialNumber(1)
+                .toSerialNumber(10)
+                .warrantyMonths(12)
+                .build());
+
+        Device device = new Device();
+        device.setSerialNumber("RN1");
+        device.setPassport(passport);
+        deviceRepository.save(device);
+
+        MvcResult login = mvc.perform(post("/api/v1/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                              "username": "admin@abv.bg",
+                              "password": "Admin123$"
+                            }
+                        """))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        jwtToken = mapper.readTree(login.getResponse().getContentAsString()).get("token").asText();
+        assertNotNull(jwtToken);
+    }
+
+    @AfterEach
+    void tearDown() {
+        renovationMonthlyCountRepository.deleteAll();
+        renovationRepository.deleteAll();
+        deviceRepository.deleteAll();
+        passportRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void bulkRenovationsFromArrayReportFailedRows() throws Exception {
+        String body = """
+            [
+              {"deviceSerialNumber": "RN1", "description": "Screen", "renovationDate": "2025-01-10"},
+              {"deviceSerialNumber": "NOPE", "description": "Battery", "renovationDate": "2025-01-11"},
+              {"deviceSerialNumber": "RN1", "renovationDate": "2025-01-12"},
+              {"deviceSerialNumber": "RN1", "description": "Fan", "renovationDate": "2025-01-13"}
+            ]
+        """;
+
+        mvc.perform(post("/api/v1/renovations/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failures.length()").value(2))
+                .andExpect(jsonPath("$.failures[0].row").value(2))
+                .andExpect(jsonPath("$.failures[0].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.failures[1].row").value(3))
+                .andExpect(jsonPath("$.failures[1].status").value("INVALID"));
+
+        assertEquals(2, renovationRepository.count());
+    }
+
+    @Test
+    void bulkRenovationsFromNdjsonSkipMalformedLines() throws Exception {
+        String body = """
+                {"deviceSerialNumber": "RN1", "description": "Screen", "renovationDate": "2025-01-10"}
+                {"deviceSerialNumber": "RN1", "description": "Battery", "renovationDate": "not a date"}
+                """;
+
+        mvc.perform(post("/api/v1/renovations/bulk")
+                        .contentType("application/x-ndjson")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failures[0].row").value(2))
+                .andExpect(jsonPath("$.failures[0].status").value("INVALID"));
+    }
+
+    @Test
+    void bulkRenovationsReportWhereAMalformedArrayStopped() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 1001; i++) {
+            body.append("{\"deviceSerialNumber\": \"RN1\", \"description\": \"Check ").append(i)
+                    .append("\", \"renovationDate\": \"2025-01-10\"},");
+        }
+        body.append("{\"deviceSerialNumber\": \"RN1\", \"description\": ]");
+
+        mvc.perform(post("/api/v1/renovations/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1001))
+                .andExpect(jsonPath("$.stoppedAtRow").value(1002))
+                .andExpect(jsonPath("$.failures.length()").value(1))
+                .andExpect(jsonPath("$.failures[0].row").value(1002));
+
+        assertEquals(1001, renovationRepository.count());
+    }
+
+    @Test
+    void saveRenovationReturnsDeviceWithTheNewRenovation() throws Exception {
+        mvc.perform(post("/api/v1/renovations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content("""
+                            {"deviceSerialNumber": "RN1", "description": "Screen", "renovationDate": "2025-01-10"}
+                        """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.device.renovationCount").value(1))
+                .andExpect(jsonPath("$.device.latestRenovation.description").value("Screen"));
+
+        mvc.perform(post("/api/v1/renovations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content("""
+                            {"deviceSerialNumber": "RN1", "description": "Fan", "renovationDate": "2025-02-10"}
+                        """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.device.renovationCount").value(2))
+                .andExpect(jsonPath("$.device.latestRenovation.description").value("Fan"));
+    }
+
+    @Test
+    void renovationRatesFollowSavedAndBulkRenovations() throws Exception {
+        mvc.perform(post("/api/v1/renovations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content("""
+                            {"deviceSerialNumber": "RN1", "description": "Screen", "renovationDate": "2025-01-10"}
+                        """))
+                .andExpect(status().isCreated());
+
+        mvc.perform(post("/api/v1/renovations/bulk")
+                        .contentType("application/x-ndjson")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content("""
+                                {"deviceSerialNumber": "RN1", "description": "Fan", "renovationDate": "2025-01-20"}
+                                {"deviceSerialNumber": "RN1", "description": "Battery", "renovationDate": "2025-02-03"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+
+        mvc.perform(get("/api/v1/renovations/analytics")
+                        .param("from", "2025-01")
+                        .param("to", "2025-03")
+                        .param("model", "rmodel")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].month").value("2025-01"))
+                .andExpect(jsonPath("$[0].renovations").value(2))
+                .andExpect(jsonPath("$[0].passportModel").value("RModel"))
+                .andExpect(jsonPath("$[1].month").value("2025-02"))
+                .andExpect(jsonPath("$[1].renovations").value(1));
+    }
+
+    @Test
+    void backfillRebuildsRenovationRates() throws Exception {
+        mvc.perform(post("/api/v1/renovations/bulk")
+                        .contentType("application/x-ndjson")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content("""
+                                {"deviceSerialNumber": "RN1", "description": "Fan", "renovationDate": "2025-05-20"}
+                                {"deviceSerialNumber": "RN1", "description": "Battery", "renovationDate": "2025-05-23"}
+                                """))
+                .andExpect(status().isOk());
+        renovationMonthlyCountRepository.deleteAll();
+
+        mvc.perform(post("/api/v1/renovations/analytics/backfill")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isAccepted());
+
+        String state = "RUNNING";
+        for (int i = 0; i < 50 && !"COMPLETED".equals(state); i++) {
+            Thread.sleep(100);
+            MvcResult backfill = mvc.perform(get("/api/v1/renovations/analytics/backfill")
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andReturn();
+            if (backfill.getResponse().getStatus() == 200) {
+                state = mapper.readTree(backfill.getResponse().getContentAsString()).get("status").asText();
+            }
+        }
+        assertEquals("COMPLETED", state);
+
+        mvc.perform(get("/api/v1/renovations/analytics")
+                        .param("from", "2025-05")
+                        .param("to", "2025-05")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].renovations").value(2));
+    }
+
+    @Test
+    void searchRenovationsPagesThroughMatches() throws Exception {
+        mvc.perform(post("/api/v1/renovations/bulk")
+                        .contentType("application/x-ndjson")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .content("""
+                                {"deviceSerialNumber": "RN1", "description": "Battery swelling, replaced", "renovationDate": "2025-03-01"}
+                                {"deviceSerialNumber": "RN1", "description": "Display cracked", "renovationDate": "2025-03-02"}
+                                {"deviceSerialNumber": "RN1", "description": "Swelling of the BATTERY pack", "renovationDate": "2025-03-03"}
+                                """))
+                .andExpect(status().isOk());
+
+        MvcResult first = mvc.perform(get("/api/v1/renovations/search")
+                        .param("query", "battery swelling")
+                        .param("size", "1")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].description").value("Swelling of the BATTERY pack"))
+                .andExpect(jsonPath("$.items[0].serialNumber").value("RN1"))
+                .andExpect(jsonPath("$.items[0].passportModel").value("RModel"))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn();
+
+        String cursor = mapper.readTree(first.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mvc.perform(get("/api/v1/renovations/search")
+                        .param("query", "battery swelling")
+                        .param("after", cursor)
+                        .param("size", "1")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].description").value("Battery swelling, replaced"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+}
@@ -0,0 +1,93 @@
+package bg.tuvarna.devicebackend.integrational;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.services.DeviceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ConcurrentDeviceRegistrationTests {
+    private static final int THREADS = 200;
+    private static final int SERIALS = 20;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @BeforeEach
+    void setUp() {
+        passportRepository.save(Passport.builder()
+                .name("Concurrent")
+                .model("CModel")
+                .serialPrefix("CR")
+                .fromSerialNumber(1)
+                .toSerialNumber(SERIALS)
+                .warrantyMonths(12)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        deviceRepository.deleteAll();
+        passportRepository.deleteAll();
+    }
+
+    @Test
+    void overlappingRegistrationsCreateEachSerialOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, AtomicInteger> created = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            String serialNumber = "CR" + (i % SERIALS + 1);
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    deviceService.addAnonymousDevice(new DeviceCreateVO(serialNumber, LocalDate.of(2025, 1, 1)));
+                    created.computeIfAbsent(serialNumber, s -> new AtomicInteger()).incrementAndGet();
+                } catch (CustomException e) {
+                    assertEquals(ErrorCode.AlreadyExists, e.getErrorCode());
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(SERIALS, created.size());
+        created.values().forEach(count -> assertEquals(1, count.get()));
+        assertEquals(THREADS - SERIALS, conflicts.get());
+        assertEquals(SERIALS, deviceRepository.count());
+    }
+}
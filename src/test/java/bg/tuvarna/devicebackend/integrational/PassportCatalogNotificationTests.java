@@ -0,0 +1,87 @@
+package bg.tuvarna.devicebackend.integrational;
+
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.services.PassportCatalog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Passport changes written straight to the database, as another node would, reach the local catalog
+ * through the trigger and {@link bg.tuvarna.devicebackend.services.PassportCatalogSubscriber}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class PassportCatalogNotificationTests {
+    private static final String INSERT_SQL = "INSERT INTO passports " +
+            "(id, name, model, serial_prefix, warranty_months, from_serial_number, to_serial_number) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void config(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PassportCatalog passportCatalog;
+
+    @Test
+    void catalogFollowsInsertUpdateAndDelete() throws InterruptedException {
+        jdbcTemplate.update(INSERT_SQL, 9001L, "Remote", "R1", "RM", 12, 1, 100);
+        awaitCatalog(() -> passportCatalog.find("RM50") != null);
+
+        jdbcTemplate.update("UPDATE passports SET name = ?, serial_prefix = ? WHERE id = ?", "Renamed", "RN", 9001L);
+        awaitCatalog(() -> passportCatalog.find("RN50") != null);
+        Passport passport = passportCatalog.get(9001L);
+        assertEquals("Renamed", passport.getName());
+        assertNull(passportCatalog.find("RM50"));
+
+        jdbcTemplate.update("DELETE FROM passports WHERE id = ?", 9001L);
+        awaitCatalog(() -> passportCatalog.get(9001L) == null);
+    }
+
+    @Test
+    void catalogReloadsAfterABurstOfChanges() throws InterruptedException {
+        jdbcTemplate.execute("""
+                INSERT INTO passports (id, name, model, serial_prefix, warranty_months, from_serial_number, to_serial_number)
+                SELECT 10000 + i, 'Burst ' || i, 'B', 'BU' || i || 'X', 12, 1, 10 FROM generate_series(1, 200) i
+                """);
+
+        awaitCatalog(() -> passportCatalog.get(10200L) != null);
+        assertNotNull(passportCatalog.find("BU1X5"));
+        assertNotNull(passportCatalog.find("BU200X5"));
+    }
+
+    private static void awaitCatalog(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Passport catalog did not pick up the change");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package bg.tuvarna.devicebackend.repositories;
 
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
@@ -18,6 +29,15 @@ class DeviceRepositoryTests {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @Autowired
+    private RenovationRepository renovationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
     @BeforeEach
     void setUp() {
         deviceRepository.deleteAll();
@@ -36,20 +56,9 @@ class DeviceRepositoryTests {
     }
 
     @Test
-    @DisplayName("getAllDevices → връща всички устройства без филтър")
-    void getAllDevices_ShouldReturnAllDevices() {
-        Page<Device> page = deviceRepository.getAllDevices(PageRequest.of(0, 10));
-
-        assertThat(page.getTotalElements()).isEqualTo(3);
-        assertThat(page.getContent())
-                .extracting(Device::getSerialNumber)
-                .containsExactlyInAnyOrder("ABC-001", "XYZ-002", "ABC-003");
-    }
-
-    @Test
-    @DisplayName("findAll → намира устройства по частично съвпадение на сериен номер")
-    void findAll_ShouldFilterBySerialNumber() {
-        Page<Device> page = deviceRepository.findAll("abc", PageRequest.of(0, 10));
+    @DisplayName("search → намира устройства по частично съвпадение на сериен номер")
+    void search_ShouldFilterBySerialNumber() {
+        Page<Device> page = deviceRepository.findAll(DeviceSpecifications.search("abc"), PageRequest.of(0, 10));
 
         assertThat(page.getTotalElements()).isEqualTo(2);
         assertThat(page.getContent())
@@ -58,16 +67,16 @@ class DeviceRepositoryTests {
     }
 
     @Test
-    @DisplayName("findAll → връща всички устройства, когато searchBy е null")
-    void findAll_ShouldReturnAll_WhenSearchIsNull() {
-        Page<Device> page = deviceRepository.findAll((String) null, PageRequest.of(0, 10));
+    @DisplayName("search → връща всички устройства, когато searchBy е null")
+    void search_ShouldReturnAll_WhenSearchIsNull() {
+        Page<Device> page = deviceRepository.findAll(DeviceSpecifications.search(null), PageRequest.of(0, 10));
         assertThat(page.getTotalElements()).isEqualTo(3);
     }
 
     @Test
-    @DisplayName("findAll → връща всички устройства, когато searchBy е празен низ")
-    void findAll_ShouldReturnAll_WhenSearchIsEmpty() {
-        Page<Device> page = deviceRepository.findAll("", PageRequest.of(0, 10));
+    @DisplayName("search → връща всички устройства, когато searchBy е празен низ")
+    void search_ShouldReturnAll_WhenSearchIsEmpty() {
+        Page<Device> page = deviceRepository.findAll(DeviceSpecifications.search(""), PageRequest.of(0, 10));
         assertThat(page.getTotalElements()).isEqualTo(3);
     }
 
@@ -77,11 +86,9 @@ class DeviceRepositoryTests {
     void deleteBySerialNumber_ShouldRemoveDevice() {
         deviceRepository.deleteBySerialNumber("XYZ-002");
 
-        Page<Device> page = deviceRepository.getAllDevices(PageRequest.of(0, 10));
-        assertThat(page.getTotalElements()).isEqualTo(2);
-        assertThat(page.getContent())
+        assertThat(deviceRepository.findAll())
                 .extracting(Device::getSerialNumber)
-                .doesNotContain("XYZ-002");
+                .containsExactlyInAnyOrder("ABC-001", "ABC-003");
     }
 
     @Test
@@ -90,15 +97,162 @@ class DeviceRepositoryTests {
     void deleteBySerialNumber_ShouldDoNothing_WhenNotFound() {
         deviceRepository.deleteBySerialNumber("NOPE-999");
 
-        Page<Device> page = deviceRepository.getAllDevices(PageRequest.of(0, 10));
-        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(deviceRepository.count()).isEqualTo(3);
     }
 
     @Test
-    @DisplayName("getAllDevices → работи коректно с пагинация")
-    void getAllDevices_ShouldSupportPagination() {
-        Page<Device> page = deviceRepository.getAllDevices(PageRequest.of(0, 2));
-        assertThat(page.getContent()).hasSize(2);
-        assertThat(page.getTotalPages()).isGreaterThanOrEqualTo(2);
+    @DisplayName("findBy → връща устройствата след курсора по сериен номер")
+    void findBy_ShouldReturnDevicesAfterSerialNumber() {
+        List<Device> devices = deviceRepository.findBy(
+                DeviceSpecifications.search(null).and(DeviceSpecifications.serialNumberAfter("ABC-001")),
+                query -> query.sortBy(Sort.by("serialNumber")).limit(10).all()
+        );
+
+        assertThat(devices)
+                .extracting(Device::getSerialNumber)
+                .containsExactly("ABC-003", "XYZ-002");
+    }
+
+    @Test
+    @DisplayName("findBy → подрежда по дата на покупка и сериен номер след курсора")
+    void findBy_ShouldReturnDevicesPurchasedAfterCursor() {
+        LocalDate date = LocalDate.of(2024, 5, 1);
+        for (String serialNumber : List.of("ABC-001", "ABC-003")) {
+            Device device = deviceRepository.findById(serialNumber).orElseThrow();
+            device.setPurchaseDate(date);
+            deviceRepository.save(device);
+        }
+
+        List<Device> dated = deviceRepository.findBy(
+                DeviceSpecifications.purchasedAfter(date, "ABC-001"),
+                query -> query.sortBy(Sort.by("purchaseDate", "serialNumber")).limit(10).all()
+        );
+        List<Device> undated = deviceRepository.findBy(
+                DeviceSpecifications.withoutPurchaseDate(),
+                query -> query.sortBy(Sort.by("serialNumber")).limit(10).all()
+        );
+
+        assertThat(dated).extracting(Device::getSerialNumber).containsExactly("ABC-003");
+        assertThat(undated).extracting(Device::getSerialNumber).containsExactly("XYZ-002");
+    }
+
+    @Test
+    @DisplayName("search → брои устройствата по частично съвпадение")
+    void search_ShouldCountMatches() {
+        assertThat(deviceRepository.count(DeviceSpecifications.search("abc"))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("findListing → връща паспорта и броя ремонти с една заявка")
+    void findListing_ShouldProjectPassportAndRenovationCount() {
+        Passport passport = passportRepository.save(Passport.builder()
+                .name("Listing")
+                .model("LModel")
+                .serialPrefix("ABC")
+                .fromSerialNumber(1)
+                .toSerialNumber(10)
+                .warrantyMonths(12)
+                .build());
+        Device device = deviceRepository.findById("ABC-001").orElseThrow();
+        device.setPassport(passport);
+        deviceRepository.save(device);
+
+        Renovation renovation = new Renovation();
+        renovation.setDescription("Screen");
+        renovation.setRenovationDate(LocalDate.of(2024, 6, 1));
+        renovation.setDevice(device);
+        renovationRepository.save(renovation);
+
+        List<DeviceListingVO> listing = deviceRepository.findListing(
+                DeviceSpecifications.search("listing"), Sort.by("serialNumber"), 0, 10
+        );
+
+        assertThat(listing).hasSize(1);
+        assertThat(listing.get(0).serialNumber()).isEqualTo("ABC-001");
+        assertThat(listing.get(0).passportModel()).isEqualTo("LModel");
+        assertThat(listing.get(0).ownerName()).isNull();
+        assertThat(listing.get(0).renovationCount()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("search → намира устройства по име на собственика")
+    void search_ShouldFilterByOwnerName() {
+        User owner = userRepository.save(User.builder()
+                .fullName("Ivan Petrov")
+                .email("ivan@abv.bg")
+                .phone("0888000111")
+                .role(UserRole.USER)
+                .build());
+        Device device = deviceRepository.findById("XYZ-002").orElseThrow();
+        device.setUser(owner);
+        deviceRepository.save(device);
+
+        Page<Device> page = deviceRepository.findAll(DeviceSpecifications.search("petrov"), PageRequest.of(0, 10));
+
+        assertThat(page.getContent())
+                .extracting(Device::getSerialNumber)
+                .containsExactly("XYZ-002");
+        assertThat(deviceRepository.count(DeviceSpecifications.search("PETROV"))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("findExpiringWarranties → връща изтичащите гаранции на части по ключ")
+    void findExpiringWarranties_ShouldWalkWindowByKeyset() {
+        LocalDate today = LocalDate.of(2025, 1, 1);
+        setWarranty("ABC-001", today.plusDays(5));
+        setWarranty("ABC-003", today.plusDays(5));
+        setWarranty("XYZ-002", today.plusDays(60));
+
+        List<ExpiringWarrantyVO> first = deviceRepository.findExpiringWarranties(
+                today, today.plusDays(30), today.minusDays(1), "", Limit.of(1)
+        );
+        List<ExpiringWarrantyVO> second = deviceRepository.findExpiringWarranties(
+                today, today.plusDays(30), first.get(0).warrantyExpirationDate(), first.get(0).serialNumber(), Limit.of(10)
+        );
+
+        assertThat(first).extracting(ExpiringWarrantyVO::serialNumber).containsExactly("ABC-001");
+        assertThat(second).extracting(ExpiringWarrantyVO::serialNumber).containsExactly("ABC-003");
+        assertThat(deviceRepository.countByWarrantyExpirationDateBetween(today, today.plusDays(30))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("updateWarrantyOf... → обновява само частта от серийни номера и само при текущата гаранция")
+    void updateWarranty_ShouldStayInsideChunkAndRequireCurrentWarrantyMonths() {
+        Passport passport = passportRepository.save(Passport.builder()
+                .name("Warranty")
+                .model("WModel")
+                .serialPrefix("ABC")
+                .fromSerialNumber(1)
+                .toSerialNumber(10)
+                .warrantyMonths(24)
+                .build());
+        LocalDate purchaseDate = LocalDate.of(2024, 1, 15);
+        for (String serialNumber : List.of("ABC-001", "ABC-003", "XYZ-002")) {
+            Device device = deviceRepository.findById(serialNumber).orElseThrow();
+            device.setPassport(passport);
+            device.setPurchaseDate(purchaseDate);
+            deviceRepository.save(device);
+        }
+
+        List<String> chunk = deviceRepository.findSerialNumbersByPurchaseDate(
+                passport.getId(), purchaseDate, "", Limit.of(2)
+        );
+
+        assertThat(chunk).containsExactly("ABC-001", "ABC-003");
+        assertThat(deviceRepository.updateWarrantyOfAnonymousDevices(
+                passport.getId(), purchaseDate, "", "ABC-003", 12, LocalDate.of(2025, 1, 15)
+        )).isZero();
+        assertThat(deviceRepository.updateWarrantyOfAnonymousDevices(
+                passport.getId(), purchaseDate, "", "ABC-003", 24, LocalDate.of(2026, 1, 15)
+        )).isEqualTo(2);
+        assertThat(deviceRepository.updateWarrantyOfRegisteredDevices(
+                passport.getId(), purchaseDate, "", "ABC-003", 24, LocalDate.of(2027, 1, 15)
+        )).isZero();
+    }
+
+    private void setWarranty(String serialNumber, LocalDate warrantyExpirationDate) {
+        Device device = deviceRepository.findById(serialNumber).orElseThrow();
+        device.setWarrantyExpirationDate(warrantyExpirationDate);
+        deviceRepository.save(device);
     }
-}
\ No newline at end of file
+}
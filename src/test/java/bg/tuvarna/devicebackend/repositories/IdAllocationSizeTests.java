@@ -0,0 +1,49 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.IdSequences;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "ids.allocation-size=7")
+@ActiveProfiles("test")
+class IdAllocationSizeTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("ids.allocation-size → задава стъпката на последователността и размера на блока")
+    void allocationSizeComesFromConfiguration() {
+        Number increment = (Number) entityManager.createNativeQuery(
+                "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?1"
+        ).setParameter(1, IdSequences.USERS.toUpperCase()).getSingleResult();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            users.add(User.builder()
+                    .fullName("User " + i)
+                    .email("user" + i + "@abv.bg")
+                    .role(UserRole.USER)
+                    .build());
+        }
+        List<Long> ids = userRepository.saveAll(users).stream().map(User::getId).toList();
+
+        assertThat(increment.intValue()).isEqualTo(7);
+        assertThat(ids.get(6) - ids.get(0)).isEqualTo(6);
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+}
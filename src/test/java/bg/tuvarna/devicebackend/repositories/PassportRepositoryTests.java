@@ -89,4 +89,15 @@ class PassportRepositoryTests {
                 .extracting(Passport::getFromSerialNumber)
                 .isEqualTo(1000);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("findByFromSerialNumberBetween → намира паспорт, чийто диапазон обхваща целия търсен диапазон")
+    void findByFromSerialNumberBetween_ShouldReturnContainingRange() {
+        List<Passport> results = passportRepository.findByFromSerialNumberBetween("AB", 1200, 1300);
+        assertThat(results)
+                .hasSize(1)
+                .first()
+                .extracting(Passport::getFromSerialNumber)
+                .isEqualTo(1000);
+    }
+}
@@ -7,8 +7,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +26,9 @@ class RenovationRepositoryTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Device device;
 
     @BeforeEach
@@ -98,6 +104,42 @@ class RenovationRepositoryTest {
         assertThat(renovationRepository.existsById(id2)).isFalse();
     }
 
+    @Test
+    @DisplayName("saveAll() трябва да раздава последователни id от блок на последователността")
+    void testSaveAllAllocatesIdsFromSequenceBlock() {
+        List<Renovation> renovations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Renovation renovation = new Renovation();
+            renovation.setDescription("Batch " + i);
+            renovation.setDevice(device);
+            renovations.add(renovation);
+        }
+
+        List<Renovation> saved = renovationRepository.saveAll(renovations);
+
+        Long first = saved.get(0).getId();
+        assertThat(saved).extracting(Renovation::getId).containsExactly(first, first + 1, first + 2);
+    }
+
+    @Test
+    @DisplayName("Броят ремонти и последният ремонт трябва да се четат без да се зарежда историята")
+    void testRenovationCountAndLatest() {
+        for (int day = 1; day <= 3; day++) {
+            Renovation renovation = new Renovation();
+            renovation.setDescription("Day " + day);
+            renovation.setRenovationDate(LocalDate.of(2025, 1, day));
+            renovation.setDevice(device);
+            renovationRepository.save(renovation);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(renovationRepository.countByDeviceSerialNumber("SN12345")).isEqualTo(3);
+        assertThat(renovationRepository.findDatedHistory("SN12345", Limit.of(1)))
+                .extracting(Renovation::getDescription)
+                .containsExactly("Day 3");
+    }
+
     @Test
     @DisplayName("count() трябва да връща точния брой записи")
     void testCount() {
@@ -0,0 +1,91 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceSearchRow;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdminSearchIndexTests {
+
+    private DeviceRepository deviceRepository;
+    private AdminSearchIndex adminSearchIndex;
+
+    @BeforeEach
+    void setup() {
+        deviceRepository = mock(DeviceRepository.class);
+        adminSearchIndex = new AdminSearchIndex(
+                deviceRepository,
+                mock(UserRepository.class),
+                new PassportCatalog(mock(PassportRepository.class)),
+                new TransactionTemplate(mock(PlatformTransactionManager.class))
+        );
+        ReflectionTestUtils.setField(adminSearchIndex, "enabled", true);
+        ReflectionTestUtils.setField(adminSearchIndex, "singleNode", true);
+    }
+
+    @Test
+    void rebuild_ShouldReplayDeletesMadeDuringTheScan() {
+        when(deviceRepository.streamSearchRows()).thenAnswer(invocation -> Stream.of(row("AB1"), row("AB2"))
+                .peek(row -> {
+                    if (row.serialNumber().equals("AB1")) {
+                        adminSearchIndex.deviceDeleted("AB2");
+                    }
+                }));
+
+        adminSearchIndex.rebuild();
+
+        assertTrue(adminSearchIndex.isReady());
+        assertEquals(List.of("AB1"), adminSearchIndex.searchDevices("ab"));
+    }
+
+    @Test
+    void searchDevices_ShouldMatchShortTerms() {
+        when(deviceRepository.streamSearchRows()).thenReturn(Stream.of(row("AB1"), row("CD2")));
+
+        adminSearchIndex.rebuild();
+
+        assertEquals(List.of("AB1"), adminSearchIndex.searchDevices("b1"));
+        assertEquals(List.of("CD2"), adminSearchIndex.searchDevices("2"));
+    }
+
+    @Test
+    void userSaved_ShouldReindexOwnedDevicesFromTheDatabase() {
+        adminSearchIndex.rebuild();
+        User user = User.builder().id(7L).fullName("Ivan Petrov").role(UserRole.USER).build();
+        when(deviceRepository.findSearchRowsByUserId(7L)).thenReturn(List.of(
+                new DeviceSearchRow("AB1", null, 7L, UserRole.USER, "Ivan Petrov", null, null, null)
+        ));
+
+        adminSearchIndex.userSaved(user);
+
+        assertEquals(List.of("AB1"), adminSearchIndex.searchDevices("petrov"));
+        assertEquals(List.of(7L), adminSearchIndex.searchUsers("petrov"));
+    }
+
+    @Test
+    void rebuild_ShouldStayDisabled_WhenNotSingleNode() {
+        ReflectionTestUtils.setField(adminSearchIndex, "singleNode", false);
+
+        adminSearchIndex.rebuild();
+
+        assertFalse(adminSearchIndex.isReady());
+        verifyNoInteractions(deviceRepository);
+    }
+
+    private DeviceSearchRow row(String serialNumber) {
+        return new DeviceSearchRow(serialNumber, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,82 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.ImportResultVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.enums.ImportStatus;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DeviceImportServiceTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private DeviceRepository deviceRepository;
+    private SerialRegistry serialRegistry;
+    private DeviceImportService deviceImportService;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        deviceRepository = mock(DeviceRepository.class);
+        serialRegistry = mock(SerialRegistry.class);
+
+        PassportCatalog passportCatalog = new PassportCatalog(mock(PassportRepository.class));
+        passportCatalog.put(Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(1).toSerialNumber(10)
+                .warrantyMonths(12).build());
+
+        deviceImportService = new DeviceImportService(
+                jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                deviceRepository,
+                passportCatalog,
+                mock(AdminSearchIndex.class),
+                mock(DeviceSummaryCache.class),
+                serialRegistry,
+                mock(Validator.class)
+        );
+    }
+
+    @Test
+    void importDevices_ShouldReportRowsNotWritten_WhenBatchFailsForAnyReason() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("timeout"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        List<ImportResultVO> results = deviceImportService.importDevices(List.of(
+                new DeviceCreateVO("AB1", LocalDate.of(2025, 1, 1)),
+                new DeviceCreateVO("AB2", LocalDate.of(2025, 1, 1))
+        ));
+
+        assertEquals(ImportStatus.CREATED, results.get(0).status());
+        assertEquals(ImportStatus.INVALID, results.get(1).status());
+        assertEquals("Could not save device", results.get(1).message());
+        verify(serialRegistry, times(1)).deviceSaved(any());
+    }
+
+    @Test
+    void importDevices_ShouldLeaveDuplicatesToTheDatabase_WhenLookupFails() {
+        when(deviceRepository.findExistingSerialNumbers(anyList())).thenThrow(new QueryTimeoutException("timeout"));
+
+        List<ImportResultVO> results = deviceImportService.importDevices(List.of(
+                new DeviceCreateVO("AB1", LocalDate.of(2025, 1, 1))
+        ));
+
+        assertEquals(ImportStatus.CREATED, results.get(0).status());
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+}
@@ -3,20 +3,25 @@ package bg.tuvarna.devicebackend.services;
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
 import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceListingVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.DeviceSortField;
 import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.utils.CursorCodec;
 import bg.tuvarna.devicebackend.utils.CustomPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -35,11 +40,20 @@ class DeviceServiceTests {
     @MockBean
     private PassportService passportService;
 
+    @MockBean
+    private AdminSearchIndex adminSearchIndex;
+
+    @MockBean
+    private DeviceSummaryCache deviceSummaryCache;
+
+    @MockBean
+    private SerialRegistry serialRegistry;
+
     private DeviceService deviceService;
 
     @BeforeEach
     void setup() {
-        deviceService = new DeviceService(deviceRepository, passportService);
+        deviceService = new DeviceService(deviceRepository, passportService, adminSearchIndex, deviceSummaryCache, serialRegistry);
     }
 
     @Test
@@ -53,7 +67,7 @@ class DeviceServiceTests {
         deviceService.registerDevice("AB123", LocalDate.of(2025, 10, 18), user);
 
         ArgumentCaptor<Device> captor = ArgumentCaptor.forClass(Device.class);
-        verify(deviceRepository).save(captor.capture());
+        verify(deviceRepository).insert(captor.capture());
         Device saved = captor.getValue();
 
         assertEquals("AB123", saved.getSerialNumber());
@@ -107,6 +121,23 @@ class DeviceServiceTests {
         assertEquals(ErrorCode.NotRegistered, ex.getErrorCode());
     }
 
+    @Test
+    void getDeviceSummary_ShouldReturnCachedSummary() {
+        DeviceSummaryVO summary = new DeviceSummaryVO("D1", null, null, null, "Passport", "Model", 12, 0L);
+        when(deviceSummaryCache.find("D1")).thenReturn(Optional.of(summary));
+
+        assertEquals(summary, deviceService.getDeviceSummary("D1"));
+        verifyNoInteractions(deviceRepository);
+    }
+
+    @Test
+    void getDeviceSummary_ShouldThrow_WhenNotExists() {
+        when(deviceSummaryCache.find("D1")).thenReturn(Optional.empty());
+        CustomException ex = assertThrows(CustomException.class,
+                () -> deviceService.getDeviceSummary("D1"));
+        assertEquals(ErrorCode.NotRegistered, ex.getErrorCode());
+    }
+
     @Test
     void registerNewDevice_ShouldRegister_WhenValid() {
         DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.of(2025, 10, 18));
@@ -114,20 +145,18 @@ class DeviceServiceTests {
         Passport passport = new Passport();
         passport.setWarrantyMonths(12);
 
-        when(deviceRepository.findById("D1")).thenReturn(Optional.empty());
         when(passportService.findPassportBySerialId("D1")).thenReturn(passport);
-        when(deviceRepository.save(any(Device.class))).thenReturn(new Device());
 
         Device result = deviceService.registerNewDevice(vo, user);
 
-        verify(deviceRepository).save(any(Device.class));
-        assertNotNull(result);
+        verify(deviceRepository).insert(any(Device.class));
+        verify(deviceRepository, never()).findById(any());
+        assertEquals("D1", result.getSerialNumber());
     }
 
     @Test
     void registerNewDevice_ShouldThrow_WhenUserIsNull() {
         DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.now());
-        when(deviceRepository.findById("D1")).thenReturn(Optional.empty());
 
         CustomException ex = assertThrows(CustomException.class, () -> deviceService.registerNewDevice(vo, null));
         assertEquals("User not found", ex.getMessage());
@@ -137,7 +166,10 @@ class DeviceServiceTests {
     @Test
     void registerNewDevice_ShouldThrow_WhenAlreadyExists() {
         DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.now());
-        when(deviceRepository.findById("D1")).thenReturn(Optional.of(new Device()));
+        Passport passport = new Passport();
+        passport.setWarrantyMonths(12);
+        when(passportService.findPassportBySerialId("D1")).thenReturn(passport);
+        when(deviceRepository.insert(any(Device.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
 
         CustomException ex = assertThrows(CustomException.class, () -> deviceService.registerNewDevice(vo, new User()));
         assertEquals("Device already registered", ex.getMessage());
@@ -158,6 +190,7 @@ class DeviceServiceTests {
         deviceService.updateDevice("D1", vo);
 
         verify(deviceRepository).save(device);
+        verify(deviceSummaryCache).invalidate("D1");
         assertEquals("Test comment", device.getComment());
         assertEquals(LocalDate.of(2025, 10, 18).plusMonths(12), device.getWarrantyExpirationDate());
     }
@@ -193,6 +226,22 @@ class DeviceServiceTests {
     void deleteDevice_ShouldCallRepositoryDelete() {
         deviceService.deleteDevice("D1");
         verify(deviceRepository).deleteBySerialNumber("D1");
+        verify(deviceSummaryCache).invalidate("D1");
+    }
+
+    @Test
+    void deleteDevice_ShouldInvalidateOnlyAfterCommit() {
+        when(deviceRepository.findPassportIdBySerialNumber("D2")).thenReturn(Optional.of(3L));
+        doAnswer(invocation -> {
+            verifyNoInteractions(deviceSummaryCache, serialRegistry, adminSearchIndex);
+            return null;
+        }).when(deviceRepository).deleteBySerialNumber("D2");
+
+        deviceService.deleteDevice("D2");
+
+        verify(deviceSummaryCache).invalidate("D2");
+        verify(serialRegistry).deviceDeleted(3L, "D2");
+        verify(adminSearchIndex).deviceDeleted("D2");
     }
 
     @Test
@@ -210,30 +259,59 @@ class DeviceServiceTests {
         Passport passport = new Passport();
         passport.setWarrantyMonths(12);
 
-        when(deviceRepository.findById("D1")).thenReturn(Optional.empty());
         when(passportService.findPassportBySerialId("D1")).thenReturn(passport);
-        when(deviceRepository.save(any(Device.class))).thenReturn(new Device());
 
         Device result = deviceService.addAnonymousDevice(vo);
 
-        verify(deviceRepository).save(any(Device.class));
-        assertNotNull(result);
+        verify(deviceRepository).insert(any(Device.class));
+        verify(deviceRepository, never()).findById(any());
+        assertEquals("D1", result.getSerialNumber());
     }
 
     @Test
     void addAnonymousDevice_ShouldThrow_WhenAlreadyExists() {
         DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.now());
-        when(deviceRepository.findById("D1")).thenReturn(Optional.of(new Device()));
+        Passport passport = new Passport();
+        passport.setWarrantyMonths(12);
+        when(passportService.findPassportBySerialId("D1")).thenReturn(passport);
+        when(deviceRepository.insert(any(Device.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
 
         CustomException ex = assertThrows(CustomException.class, () -> deviceService.addAnonymousDevice(vo));
         assertEquals("Device already registered", ex.getMessage());
         assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
     }
 
+    @Test
+    void addAnonymousDevice_ShouldNotInsert_WhenSerialRegistryKnowsSerial() {
+        DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.now());
+        Passport passport = new Passport();
+        passport.setWarrantyMonths(12);
+        when(passportService.findPassportBySerialId("D1")).thenReturn(passport);
+        when(serialRegistry.isRegistered("D1")).thenReturn(true);
+        when(deviceRepository.existsById("D1")).thenReturn(true);
+
+        CustomException ex = assertThrows(CustomException.class, () -> deviceService.addAnonymousDevice(vo));
+        assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
+        verify(deviceRepository, never()).insert(any());
+    }
+
+    @Test
+    void addAnonymousDevice_ShouldInsert_WhenSerialRegistryHitIsStale() {
+        DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.now());
+        Passport passport = new Passport();
+        passport.setWarrantyMonths(12);
+        when(passportService.findPassportBySerialId("D1")).thenReturn(passport);
+        when(serialRegistry.isRegistered("D1")).thenReturn(true);
+        when(deviceRepository.existsById("D1")).thenReturn(false);
+
+        deviceService.addAnonymousDevice(vo);
+
+        verify(deviceRepository).insert(any(Device.class));
+    }
+
     @Test
     void addAnonymousDevice_ShouldThrow_WhenPassportFails() {
         DeviceCreateVO vo = new DeviceCreateVO("D1", LocalDate.now());
-        when(deviceRepository.findById("D1")).thenReturn(Optional.empty());
         when(passportService.findPassportBySerialId("D1")).thenThrow(new RuntimeException());
 
         CustomException ex = assertThrows(CustomException.class, () -> deviceService.addAnonymousDevice(vo));
@@ -243,11 +321,12 @@ class DeviceServiceTests {
 
     @Test
     void getDevices_ShouldReturnAll_WhenSearchByNull() {
-        Device device = new Device();
-        Page<Device> page = new PageImpl<>(List.of(device), PageRequest.of(0, 1), 1);
-        when(deviceRepository.getAllDevices(PageRequest.of(0, 1))).thenReturn(page);
+        DeviceListingVO device = listing("D1");
+        when(deviceRepository.findListing(any(Specification.class), eq(Sort.by("serialNumber")), eq(0), eq(1)))
+                .thenReturn(List.of(device));
+        when(deviceRepository.count(any(Specification.class))).thenReturn(1L);
 
-        CustomPage<Device> result = deviceService.getDevices(null, 1, 1);
+        CustomPage<DeviceListingVO> result = deviceService.getDevices(null, 1, 1);
 
         assertEquals(1, result.getCurrentPage());
         assertEquals(1, result.getTotalPages());
@@ -257,15 +336,73 @@ class DeviceServiceTests {
 
     @Test
     void getDevices_ShouldReturnFiltered_WhenSearchByProvided() {
-        Device device = new Device();
-        Page<Device> page = new PageImpl<>(List.of(device), PageRequest.of(0, 1), 1);
-        when(deviceRepository.findAll("search", PageRequest.of(0, 1))).thenReturn(page);
+        DeviceListingVO device = listing("D1");
+        when(deviceRepository.findListing(any(Specification.class), eq(Sort.by("serialNumber")), eq(2), eq(2)))
+                .thenReturn(List.of(device));
+        when(deviceRepository.count(any(Specification.class))).thenReturn(3L);
 
-        CustomPage<Device> result = deviceService.getDevices("search", 1, 1);
+        CustomPage<DeviceListingVO> result = deviceService.getDevices("search", 2, 2);
 
-        assertEquals(1, result.getCurrentPage());
-        assertEquals(1, result.getTotalPages());
-        assertEquals(1, result.getTotalItems());
+        assertEquals(2, result.getCurrentPage());
+        assertEquals(2, result.getTotalPages());
+        assertEquals(3, result.getTotalItems());
         assertThat(result.getItems()).contains(device);
     }
+
+    @Test
+    void getDevicesAfter_ShouldReturnNextCursorWithoutCounting() {
+        DeviceListingVO first = listing("D1");
+        DeviceListingVO second = listing("D2");
+        when(deviceRepository.findListing(any(Specification.class), any(Sort.class), eq(0), eq(2))).thenReturn(List.of(first, second));
+
+        CustomPage<DeviceListingVO> result = deviceService.getDevicesAfter(null, DeviceSortField.SERIAL_NUMBER, "", 1, false);
+
+        assertThat(result.getItems()).containsExactly(first);
+        assertEquals(CursorCodec.encode("SERIAL_NUMBER", null, "D1"), result.getNextCursor());
+        verify(deviceRepository, never()).count(any(Specification.class));
+    }
+
+    @Test
+    void getDevicesAfter_ShouldThrow_WhenCursorFromOtherOrder() {
+        String cursor = CursorCodec.encode("SERIAL_NUMBER", null, "D1");
+
+        CustomException ex = assertThrows(CustomException.class,
+                () -> deviceService.getDevicesAfter(null, DeviceSortField.PURCHASE_DATE, cursor, 10, false));
+        assertEquals("Invalid cursor", ex.getMessage());
+        assertEquals(ErrorCode.Validation, ex.getErrorCode());
+    }
+
+    @Test
+    void getDevices_ShouldUseSearchIndex_WhenReady() {
+        DeviceListingVO device = listing("D2");
+        when(adminSearchIndex.isReady()).thenReturn(true);
+        when(adminSearchIndex.searchDevices("d")).thenReturn(List.of("D1", "D2", "D3"));
+        when(deviceRepository.findListing(any(Specification.class), eq(Sort.by("serialNumber")), eq(0), eq(1)))
+                .thenReturn(List.of(device));
+
+        CustomPage<DeviceListingVO> result = deviceService.getDevices("d", 2, 1);
+
+        assertEquals(3, result.getTotalItems());
+        assertEquals(3, result.getTotalPages());
+        assertThat(result.getItems()).containsExactly(device);
+        verify(deviceRepository, never()).count(any(Specification.class));
+    }
+
+    @Test
+    void getExpiringWarranties_ShouldCountOnlyWhenAskedTo() {
+        when(deviceRepository.findExpiringWarranties(any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(deviceRepository.countByWarrantyExpirationDateBetween(any(), any())).thenReturn(12L);
+
+        CustomPage<ExpiringWarrantyVO> page = deviceService.getExpiringWarranties(30, null, 5, false);
+        assertEquals(0, page.getTotalItems());
+        verify(deviceRepository, never()).countByWarrantyExpirationDateBetween(any(), any());
+
+        page = deviceService.getExpiringWarranties(30, null, 5, true);
+        assertEquals(12, page.getTotalItems());
+        assertEquals(3, page.getTotalPages());
+    }
+
+    private static DeviceListingVO listing(String serialNumber) {
+        return new DeviceListingVO(serialNumber, null, null, null, "Passport", "Model", null, 0L);
+    }
 }
@@ -0,0 +1,73 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.DatabasePlatform;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class PassportCatalogSubscriberTests {
+
+    private PassportCatalog passportCatalog;
+    private PassportCatalogSubscriber subscriber;
+
+    @BeforeEach
+    void setup() {
+        passportCatalog = mock(PassportCatalog.class);
+        subscriber = new PassportCatalogSubscriber(new DataSourceProperties(), mock(DatabasePlatform.class), passportCatalog);
+    }
+
+    @Test
+    void apply_ShouldRefreshUpsertedPassport() {
+        subscriber.apply(List.of("upsert:7"));
+
+        verify(passportCatalog).refresh(7L);
+        verifyNoMoreInteractions(passportCatalog);
+    }
+
+    @Test
+    void apply_ShouldRemoveDeletedPassport() {
+        subscriber.apply(List.of("delete:7"));
+
+        verify(passportCatalog).remove(7L);
+        verifyNoMoreInteractions(passportCatalog);
+    }
+
+    @Test
+    void apply_ShouldApplyNotificationsInOrder() {
+        subscriber.apply(List.of("upsert:1", "delete:2", "upsert:2"));
+
+        var inOrder = inOrder(passportCatalog);
+        inOrder.verify(passportCatalog).refresh(1L);
+        inOrder.verify(passportCatalog).remove(2L);
+        inOrder.verify(passportCatalog).refresh(2L);
+    }
+
+    @Test
+    void apply_ShouldSkipMalformedPayloads() {
+        subscriber.apply(List.of("upsert", "upsert:x", "rename:3", "delete:", "upsert:4"));
+
+        verify(passportCatalog).refresh(4L);
+        verifyNoMoreInteractions(passportCatalog);
+    }
+
+    @Test
+    void apply_ShouldReloadOnce_WhenBurstExceedsThreshold() {
+        subscriber.apply(Collections.nCopies(65, "upsert:1"));
+
+        verify(passportCatalog).reload();
+        verifyNoMoreInteractions(passportCatalog);
+    }
+
+    @Test
+    void apply_ShouldPatch_WhenBurstIsAtThreshold() {
+        subscriber.apply(Collections.nCopies(64, "upsert:1"));
+
+        verify(passportCatalog, times(64)).refresh(1L);
+        verify(passportCatalog, never()).reload();
+    }
+}
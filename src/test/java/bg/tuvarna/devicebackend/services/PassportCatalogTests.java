@@ -0,0 +1,70 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PassportCatalogTests {
+
+    private PassportRepository passportRepository;
+    private PassportCatalog passportCatalog;
+
+    @BeforeEach
+    void setup() {
+        passportRepository = mock(PassportRepository.class);
+        passportCatalog = new PassportCatalog(passportRepository);
+    }
+
+    @Test
+    void reload_ShouldReplaceTheCatalog() {
+        passportCatalog.put(passport(1L, "AB"));
+        when(passportRepository.findAll()).thenReturn(List.of(passport(2L, "CD")));
+
+        passportCatalog.reload();
+
+        assertNull(passportCatalog.get(1L));
+        assertNotNull(passportCatalog.find("CD5"));
+    }
+
+    @Test
+    void reload_ShouldNotDropAPutMadeDuringTheRead() {
+        Passport first = passport(1L, "AB");
+        Passport second = passport(2L, "CD");
+        when(passportRepository.findAll())
+                .thenAnswer(invocation -> {
+                    passportCatalog.put(second);
+                    return List.of(first);
+                })
+                .thenReturn(List.of(first, second));
+
+        passportCatalog.reload();
+
+        verify(passportRepository, times(2)).findAll();
+        assertNotNull(passportCatalog.get(1L));
+        assertNotNull(passportCatalog.get(2L));
+    }
+
+    @Test
+    void reload_ShouldReadUnderTheLock_WhenChangesKeepComing() {
+        Passport first = passport(1L, "AB");
+        when(passportRepository.findAll()).thenAnswer(invocation -> {
+            passportCatalog.put(first);
+            return List.of(first);
+        });
+
+        passportCatalog.reload();
+
+        verify(passportRepository, times(3)).findAll();
+        assertEquals(1, passportCatalog.size());
+    }
+
+    private static Passport passport(Long id, String serialPrefix) {
+        return Passport.builder().id(id).serialPrefix(serialPrefix).fromSerialNumber(1).toSerialNumber(10).build();
+    }
+}
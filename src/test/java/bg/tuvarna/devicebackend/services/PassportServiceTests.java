@@ -4,18 +4,22 @@ import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
 import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
 import bg.tuvarna.devicebackend.models.dtos.PassportUpdateVO;
+import bg.tuvarna.devicebackend.models.dtos.WarrantyRecalculationVO;
 import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.enums.JobStatus;
 import bg.tuvarna.devicebackend.repositories.PassportRepository;
 import bg.tuvarna.devicebackend.utils.CustomPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
-import java.util.Collections;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,11 +33,20 @@ class PassportServiceTests {
     @MockBean
     private PassportRepository passportRepository;
 
+    @MockBean
+    private WarrantyRecalculationService warrantyRecalculationService;
+
+    @MockBean
+    private SerialRegistry serialRegistry;
+
+    private PassportCatalog passportCatalog;
+
     private PassportService passportService;
 
     @BeforeEach
     void setup() {
-        passportService = new PassportService(passportRepository);
+        passportCatalog = new PassportCatalog(passportRepository);
+        passportService = new PassportService(passportRepository, passportCatalog, warrantyRecalculationService, serialRegistry);
     }
 
     @Test
@@ -42,23 +55,19 @@ class PassportServiceTests {
                 "Test Passport", "Model X", "AB", 12, 100, 200
         );
 
-        when(passportRepository.findByFromSerialNumberBetween("AB", 100, 200))
-                .thenReturn(Collections.emptyList());
-
         Passport mockPassport = new Passport();
-        when(passportRepository.save(any(Passport.class))).thenReturn(mockPassport);
+        when(passportRepository.saveAndFlush(any(Passport.class))).thenReturn(mockPassport);
 
         Passport result = passportService.create(vo);
 
-        verify(passportRepository, times(1)).save(any(Passport.class));
+        verify(passportRepository, times(1)).saveAndFlush(any(Passport.class));
+        verify(passportRepository, never()).findByFromSerialNumberBetween(anyString(), anyInt(), anyInt());
         assertNotNull(result);
     }
 
     @Test
     void create_ShouldThrow_WhenOverlapExists() {
-        Passport existing = new Passport();
-        when(passportRepository.findByFromSerialNumberBetween("AB", 100, 200))
-                .thenReturn(List.of(existing));
+        passportCatalog.put(Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(150).toSerialNumber(300).build());
 
         PassportCreateVO vo = new PassportCreateVO(
                 "Test Passport", "Model X", "AB", 12, 100, 200
@@ -67,6 +76,45 @@ class PassportServiceTests {
         CustomException ex = assertThrows(CustomException.class, () -> passportService.create(vo));
         assertEquals("Serial number already exists", ex.getMessage());
         assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
+        verify(passportRepository, never()).saveAndFlush(any(Passport.class));
+    }
+
+    @Test
+    void create_ShouldThrow_WhenExistingRangeContainsNewRange() {
+        passportCatalog.put(Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(0).toSerialNumber(1000).build());
+
+        PassportCreateVO vo = new PassportCreateVO(
+                "Test Passport", "Model X", "AB", 12, 100, 200
+        );
+
+        CustomException ex = assertThrows(CustomException.class, () -> passportService.create(vo));
+        assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
+    }
+
+    @Test
+    void create_ShouldThrow_WhenDatabaseRejectsOverlap() {
+        PassportCreateVO vo = new PassportCreateVO(
+                "Test Passport", "Model X", "AB", 12, 100, 200
+        );
+
+        when(passportRepository.saveAndFlush(any(Passport.class)))
+                .thenThrow(new DataIntegrityViolationException("passports_serial_range_excl"));
+
+        CustomException ex = assertThrows(CustomException.class, () -> passportService.create(vo));
+        assertEquals("Serial number already exists", ex.getMessage());
+        assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
+    }
+
+    @Test
+    void create_ShouldRethrow_WhenAnotherConstraintFails() {
+        PassportCreateVO vo = new PassportCreateVO(
+                "Test Passport", "Model X", "AB", 12, 100, 200
+        );
+
+        when(passportRepository.saveAndFlush(any(Passport.class)))
+                .thenThrow(new DataIntegrityViolationException("NULL not allowed for column \"NAME\""));
+
+        assertThrows(DataIntegrityViolationException.class, () -> passportService.create(vo));
     }
 
     @Test
@@ -76,22 +124,54 @@ class PassportServiceTests {
         existing.setSerialPrefix("AB");
         existing.setFromSerialNumber(100);
         existing.setToSerialNumber(200);
+        passportCatalog.put(existing);
 
         when(passportRepository.findById(1L)).thenReturn(Optional.of(existing));
-        when(passportRepository.findByFromSerialNumberBetween("AB", 100, 200))
-                .thenReturn(Collections.emptyList());
 
         PassportUpdateVO vo = new PassportUpdateVO(
                 "Updated Name", "Updated Model", "AB", 12, 100, 200
         );
-        when(passportRepository.save(existing)).thenReturn(existing);
+        when(passportRepository.saveAndFlush(existing)).thenReturn(existing);
+        WarrantyRecalculationVO job = new WarrantyRecalculationVO(
+                7L, 1L, 12, JobStatus.RUNNING, 0, 0, 0, LocalDateTime.now()
+        );
+        when(warrantyRecalculationService.start(1L, 12)).thenReturn(job);
 
         Passport result = passportService.update(1L, vo);
 
-        verify(passportRepository).save(existing);
+        verify(passportRepository).saveAndFlush(existing);
+        verify(warrantyRecalculationService).recalculate(job);
         assertEquals(existing, result);
     }
 
+    @Test
+    void update_ShouldNotRecalculateWarranty_WhenWarrantyUnchanged() {
+        Passport existing = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(100).toSerialNumber(200).warrantyMonths(12).build();
+        passportCatalog.put(existing);
+
+        when(passportRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(passportRepository.saveAndFlush(existing)).thenReturn(existing);
+
+        passportService.update(1L, new PassportUpdateVO("Renamed", null, null, null, null, null));
+
+        verify(warrantyRecalculationService, never()).start(anyLong(), anyInt());
+        verify(warrantyRecalculationService, never()).recalculate(any());
+        verify(serialRegistry, never()).rebuild(anyLong());
+    }
+
+    @Test
+    void update_ShouldRebuildSerialRegistry_WhenPrefixChanged() {
+        Passport existing = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(100).toSerialNumber(200).warrantyMonths(12).build();
+        passportCatalog.put(existing);
+
+        when(passportRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(passportRepository.saveAndFlush(existing)).thenReturn(existing);
+
+        passportService.update(1L, new PassportUpdateVO(null, null, "CD", null, null, null));
+
+        verify(serialRegistry).rebuild(1L);
+    }
+
     @Test
     void update_ShouldThrow_WhenPassportNotFound() {
         when(passportRepository.findById(1L)).thenReturn(Optional.empty());
@@ -110,12 +190,10 @@ class PassportServiceTests {
         Passport existing = new Passport();
         existing.setId(1L);
 
-        Passport overlapping = new Passport();
-        overlapping.setId(2L);
+        Passport overlapping = Passport.builder().id(2L).serialPrefix("AB").fromSerialNumber(150).toSerialNumber(250).build();
+        passportCatalog.put(overlapping);
 
         when(passportRepository.findById(1L)).thenReturn(Optional.of(existing));
-        when(passportRepository.findByFromSerialNumberBetween("AB", 100, 200))
-                .thenReturn(List.of(overlapping));
 
         PassportUpdateVO vo = new PassportUpdateVO(
                 "Updated", "Model", "AB", 12, 100, 200
@@ -145,24 +223,26 @@ class PassportServiceTests {
     @Test
     void findPassportBySerialId_ShouldReturnMatchingPassport() {
         Passport passport = new Passport();
+        passport.setId(1L);
         passport.setSerialPrefix("AB");
         passport.setFromSerialNumber(100);
         passport.setToSerialNumber(200);
 
-        when(passportRepository.findByFromSerial("AB150")).thenReturn(List.of(passport));
+        passportCatalog.put(passport);
 
         Passport result = passportService.findPassportBySerialId("AB150");
-        assertEquals(passport, result);
+        assertEquals(passport.getId(), result.getId());
     }
 
     @Test
     void findPassportBySerialId_ShouldThrow_WhenSerialNumberInvalid() {
         Passport passport = new Passport();
+        passport.setId(1L);
         passport.setSerialPrefix("AB");
         passport.setFromSerialNumber(100);
         passport.setToSerialNumber(200);
 
-        when(passportRepository.findByFromSerial("ABX")).thenReturn(List.of(passport));
+        passportCatalog.put(passport);
 
         CustomException ex = assertThrows(CustomException.class, () ->
                 passportService.findPassportBySerialId("ABX"));
@@ -172,17 +252,50 @@ class PassportServiceTests {
     @Test
     void findPassportBySerialId_ShouldThrow_WhenSerialNumberOutOfRange() {
         Passport passport = new Passport();
+        passport.setId(1L);
         passport.setSerialPrefix("AB");
         passport.setFromSerialNumber(100);
         passport.setToSerialNumber(200);
 
-        when(passportRepository.findByFromSerial("AB999")).thenReturn(List.of(passport));
+        passportCatalog.put(passport);
 
         CustomException ex = assertThrows(CustomException.class,
                 () -> passportService.findPassportBySerialId("AB999"));
         assertTrue(ex.getMessage().contains("Passport not found"));
     }
 
+    @Test
+    void findPassportBySerialId_ShouldPickRangeContainingSerial() {
+        Passport first = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(100).toSerialNumber(199).build();
+        Passport second = Passport.builder().id(2L).serialPrefix("AB").fromSerialNumber(200).toSerialNumber(299).build();
+        passportCatalog.put(first);
+        passportCatalog.put(second);
+
+        assertEquals(1L, passportService.findPassportBySerialId("AB199").getId());
+        assertEquals(2L, passportService.findPassportBySerialId("AB200").getId());
+    }
+
+    @Test
+    void findPassportBySerialId_ShouldPreferLongestMatchingPrefix() {
+        Passport shorter = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(0).toSerialNumber(99999).build();
+        Passport longer = Passport.builder().id(2L).serialPrefix("AB1").fromSerialNumber(0).toSerialNumber(999).build();
+        passportCatalog.put(shorter);
+        passportCatalog.put(longer);
+
+        assertEquals(2L, passportService.findPassportBySerialId("AB1500").getId());
+        assertEquals(1L, passportService.findPassportBySerialId("AB15000").getId());
+        assertEquals(1L, passportService.findPassportBySerialId("AB2500").getId());
+    }
+
+    @Test
+    void findPassportBySerialId_ShouldThrow_AfterPassportRemovedFromCatalog() {
+        Passport passport = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(100).toSerialNumber(200).build();
+        passportCatalog.put(passport);
+        passportCatalog.remove(1L);
+
+        assertThrows(CustomException.class, () -> passportService.findPassportBySerialId("AB150"));
+    }
+
     @Test
     void getPassports_ShouldReturnCustomPage() {
         Passport p = new Passport();
@@ -198,6 +311,38 @@ class PassportServiceTests {
         assertThat(result.getItems()).contains(p);
     }
 
+    @Test
+    void getPassportsAfter_ShouldReturnNextCursor_WhenMoreRowsExist() {
+        Passport first = Passport.builder().id(3L).serialPrefix("AB").fromSerialNumber(1).toSerialNumber(10).build();
+        Passport second = Passport.builder().id(7L).serialPrefix("AC").fromSerialNumber(1).toSerialNumber(10).build();
+        Passport third = Passport.builder().id(9L).serialPrefix("AD").fromSerialNumber(1).toSerialNumber(10).build();
+        passportCatalog.put(first);
+        passportCatalog.put(second);
+        passportCatalog.put(third);
+        when(passportRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(List.of(first, second, third));
+        when(passportRepository.findByIdGreaterThanOrderByIdAsc(7L, Limit.of(3))).thenReturn(List.of(third));
+
+        CustomPage<Passport> firstPage = passportService.getPassportsAfter("", 2);
+
+        assertThat(firstPage.getItems()).containsExactly(first, second);
+        assertEquals(3, firstPage.getTotalItems());
+        assertEquals(2, firstPage.getTotalPages());
+        assertNotNull(firstPage.getNextCursor());
+
+        CustomPage<Passport> secondPage = passportService.getPassportsAfter(firstPage.getNextCursor(), 2);
+
+        assertThat(secondPage.getItems()).containsExactly(third);
+        assertNull(secondPage.getNextCursor());
+        verify(passportRepository, never()).count();
+    }
+
+    @Test
+    void getPassportsAfter_ShouldThrow_WhenCursorInvalid() {
+        CustomException ex = assertThrows(CustomException.class, () -> passportService.getPassportsAfter("not a cursor", 2));
+        assertEquals("Invalid cursor", ex.getMessage());
+        assertEquals(ErrorCode.Validation, ex.getErrorCode());
+    }
+
     @Test
     void getPassportsBySerialPrefix_ShouldReturnList() {
         Passport passport = new Passport();
@@ -1,20 +1,29 @@
 package bg.tuvarna.devicebackend.services;
 
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceSummaryVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
 import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import bg.tuvarna.devicebackend.utils.CustomPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -26,6 +35,9 @@ class RenovationServiceTests {
     @MockBean
     private DeviceService deviceService;
 
+    @MockBean
+    private RenovationRollupService renovationRollupService;
+
     @Autowired
     private RenovationService renovationService;
 
@@ -35,6 +47,7 @@ class RenovationServiceTests {
     void setup() {
         device = new Device();
         device.setSerialNumber("SN-001");
+        when(renovationRepository.save(any(Renovation.class))).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
@@ -74,4 +87,62 @@ class RenovationServiceTests {
         verify(deviceService, times(1)).isDeviceExists("SN-002");
         verify(renovationRepository, times(1)).save(any(Renovation.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void save_ShouldCountRenovationForPassportMonth() {
+        Passport passport = new Passport();
+        passport.setId(7L);
+        device.setPassport(passport);
+        LocalDate date = LocalDate.of(2025, 4, 9);
+
+        when(deviceService.isDeviceExists("SN-001")).thenReturn(device);
+        when(renovationRepository.save(any(Renovation.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        renovationService.save(new RenovationCreateVO("SN-001", "Changed belt", date));
+
+        verify(renovationRollupService).increment(7L, date);
+    }
+
+    @Test
+    void getHistory_ShouldPageNewestFirstAndContinueWithUndated() {
+        when(deviceService.getDeviceSummary("SN-001"))
+                .thenReturn(new DeviceSummaryVO("SN-001", null, null, null, null, null, null, 3L));
+        when(renovationRepository.findDatedHistory(eq("SN-001"), any(Limit.class)))
+                .thenReturn(List.of(renovation(5L, LocalDate.of(2025, 3, 1)), renovation(4L, LocalDate.of(2025, 2, 1))));
+        when(renovationRepository.findUndatedHistoryBefore(eq("SN-001"), eq(Long.MAX_VALUE), any(Limit.class)))
+                .thenReturn(List.of(renovation(9L, null)));
+
+        CustomPage<RenovationVO> first = renovationService.getHistory("SN-001", null, 2);
+
+        assertEquals(List.of(5L, 4L), first.getItems().stream().map(RenovationVO::id).toList());
+        assertNull(first.getItems().get(0).device());
+        assertEquals(3, first.getTotalItems());
+        assertNotNull(first.getNextCursor());
+
+        when(renovationRepository.findDatedHistoryBefore(eq("SN-001"), eq(LocalDate.of(2025, 2, 1)), eq(4L), any(Limit.class)))
+                .thenReturn(List.of());
+
+        CustomPage<RenovationVO> second = renovationService.getHistory("SN-001", first.getNextCursor(), 2);
+
+        assertEquals(List.of(9L), second.getItems().stream().map(RenovationVO::id).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void getHistory_ShouldThrow_WhenDeviceNotRegistered() {
+        when(deviceService.getDeviceSummary("SN-404"))
+                .thenThrow(new CustomException("Device not registered", ErrorCode.NotRegistered));
+
+        assertThrows(CustomException.class, () -> renovationService.getHistory("SN-404", null, 10));
+        verifyNoInteractions(renovationRepository);
+    }
+
+    private Renovation renovation(Long id, LocalDate date) {
+        Renovation renovation = new Renovation();
+        renovation.setId(id);
+        renovation.setRenovationDate(date);
+        renovation.setDevice(device);
+        return renovation;
+    }
+}
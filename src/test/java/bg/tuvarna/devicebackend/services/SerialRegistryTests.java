@@ -0,0 +1,197 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.PassportUtilizationVO;
+import bg.tuvarna.devicebackend.models.dtos.RegisteredSerialRow;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SerialRegistryTests {
+
+    private DeviceRepository deviceRepository;
+    private PassportCatalog passportCatalog;
+    private SerialRegistry serialRegistry;
+    private Passport passport;
+
+    @BeforeEach
+    void setup() {
+        deviceRepository = mock(DeviceRepository.class);
+        passportCatalog = new PassportCatalog(mock(PassportRepository.class));
+        passport = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(1).toSerialNumber(10).build();
+        passportCatalog.put(passport);
+
+        serialRegistry = new SerialRegistry(
+                deviceRepository, passportCatalog, new TransactionTemplate(mock(PlatformTransactionManager.class))
+        );
+    }
+
+    @Test
+    void isRegistered_ShouldBeFalseUntilLoaded() {
+        serialRegistry.deviceSaved(device("AB3"));
+
+        assertFalse(serialRegistry.isReady());
+        assertFalse(serialRegistry.isRegistered("AB3"));
+    }
+
+    @Test
+    void load_ShouldRegisterScannedSerials() {
+        when(deviceRepository.streamRegisteredSerials()).thenReturn(Stream.of(
+                new RegisteredSerialRow(1L, "AB2"), new RegisteredSerialRow(1L, "AB3")
+        ));
+
+        serialRegistry.load();
+
+        assertTrue(serialRegistry.isRegistered("AB2"));
+        assertTrue(serialRegistry.isRegistered("AB3"));
+        assertFalse(serialRegistry.isRegistered("AB4"));
+        assertFalse(serialRegistry.isRegistered("XY2"));
+    }
+
+    @Test
+    void load_ShouldReplayDeletesMadeDuringTheScan() {
+        when(deviceRepository.streamRegisteredSerials()).thenAnswer(invocation -> Stream.of(
+                new RegisteredSerialRow(1L, "AB2"), new RegisteredSerialRow(1L, "AB3")
+        ).peek(row -> {
+            if (row.serialNumber().equals("AB3")) {
+                serialRegistry.deviceDeleted(1L, "AB2");
+            }
+        }));
+
+        serialRegistry.load();
+
+        assertFalse(serialRegistry.isRegistered("AB2"));
+        assertTrue(serialRegistry.isRegistered("AB3"));
+    }
+
+    @Test
+    void getUtilization_ShouldCountRegisteredSerialsInRange() {
+        serialRegistry.load();
+        serialRegistry.deviceSaved(device("AB1"));
+        serialRegistry.deviceSaved(device("AB5"));
+        serialRegistry.deviceSaved(device("AB6"));
+        serialRegistry.deviceDeleted(1L, "AB6");
+
+        PassportUtilizationVO utilization = serialRegistry.getUtilization(1L);
+
+        assertEquals(10, utilization.rangeSize());
+        assertEquals(2, utilization.registered());
+        assertEquals(8, utilization.unregistered());
+        assertEquals(0.2, utilization.utilization());
+    }
+
+    @Test
+    void getUnregistered_ShouldSkipRegisteredSerialsAndPageByCursor() {
+        serialRegistry.load();
+        serialRegistry.deviceSaved(device("AB1"));
+        serialRegistry.deviceSaved(device("AB2"));
+        serialRegistry.deviceSaved(device("AB4"));
+
+        CustomPage<String> first = serialRegistry.getUnregistered(1L, null, 3);
+        assertEquals(List.of("AB3", "AB5", "AB6"), first.getItems());
+        assertNotNull(first.getNextCursor());
+
+        CustomPage<String> second = serialRegistry.getUnregistered(1L, first.getNextCursor(), 10);
+        assertEquals(List.of("AB7", "AB8", "AB9", "AB10"), second.getItems());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void isRegistered_ShouldNotUseOldSuffixes_WhenPrefixChanged() {
+        when(deviceRepository.streamRegisteredSerials()).thenReturn(Stream.of(new RegisteredSerialRow(1L, "AB5")));
+        serialRegistry.load();
+
+        passport = Passport.builder().id(1L).serialPrefix("CD").fromSerialNumber(1).toSerialNumber(10).build();
+        passportCatalog.put(passport);
+
+        assertFalse(serialRegistry.isRegistered("CD5"));
+        CustomException ex = assertThrows(CustomException.class, () -> serialRegistry.getUtilization(1L));
+        assertEquals(ErrorCode.Failed, ex.getErrorCode());
+
+        when(deviceRepository.streamSerialNumbersByPassportId(1L)).thenReturn(Stream.of("CD7"));
+        serialRegistry.rebuild(1L);
+
+        assertFalse(serialRegistry.isRegistered("CD5"));
+        assertTrue(serialRegistry.isRegistered("CD7"));
+        assertEquals(1, serialRegistry.getUtilization(1L).registered());
+
+        serialRegistry.deviceSaved(device("CD5"));
+        assertTrue(serialRegistry.isRegistered("CD5"));
+    }
+
+    @Test
+    void rebuild_ShouldApplyChangesMadeDuringTheScan() {
+        serialRegistry.load();
+        when(deviceRepository.streamSerialNumbersByPassportId(1L)).thenAnswer(invocation -> Stream.of("AB2", "AB3")
+                .peek(serialNumber -> {
+                    if (serialNumber.equals("AB3")) {
+                        serialRegistry.deviceDeleted(1L, "AB2");
+                        serialRegistry.deviceSaved(device("AB9"));
+                    }
+                }));
+
+        serialRegistry.rebuild(1L);
+
+        assertFalse(serialRegistry.isRegistered("AB2"));
+        assertTrue(serialRegistry.isRegistered("AB3"));
+        assertTrue(serialRegistry.isRegistered("AB9"));
+    }
+
+    @Test
+    void deviceDeleted_ShouldClearSerial_WhenRangeNoLongerContainsIt() {
+        serialRegistry.load();
+        serialRegistry.deviceSaved(device("AB9"));
+
+        passport = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(1).toSerialNumber(5).build();
+        passportCatalog.put(passport);
+        serialRegistry.deviceDeleted(1L, "AB9");
+
+        passport = Passport.builder().id(1L).serialPrefix("AB").fromSerialNumber(1).toSerialNumber(10).build();
+        passportCatalog.put(passport);
+        assertFalse(serialRegistry.isRegistered("AB9"));
+    }
+
+    @Test
+    void countDevices_ShouldCountDevicesOutsideTheRange_AndBeEmptyWhileLoading() {
+        assertTrue(serialRegistry.countDevices(1L).isEmpty());
+
+        serialRegistry.load();
+        assertEquals(0, serialRegistry.countDevices(1L).getAsLong());
+
+        serialRegistry.deviceSaved(device("AB2"));
+        serialRegistry.deviceSaved(device("AB12"));
+        assertEquals(2, serialRegistry.countDevices(1L).getAsLong());
+
+        passport = Passport.builder().id(1L).serialPrefix("CD").fromSerialNumber(1).toSerialNumber(10).build();
+        passportCatalog.put(passport);
+        assertTrue(serialRegistry.countDevices(1L).isEmpty());
+    }
+
+    @Test
+    void getUtilization_ShouldThrow_WhenPassportUnknown() {
+        serialRegistry.load();
+
+        CustomException ex = assertThrows(CustomException.class, () -> serialRegistry.getUtilization(2L));
+        assertEquals(ErrorCode.EntityNotFound, ex.getErrorCode());
+    }
+
+    private Device device(String serialNumber) {
+        Device device = new Device();
+        device.setSerialNumber(serialNumber);
+        device.setPassport(passport);
+        return device;
+    }
+}
@@ -77,8 +77,8 @@ class UserServiceTests {
         when(userRepository.getByPhone(anyString())).thenReturn(null);
         when(passwordEncoder.encode("123")).thenReturn("encoded");
         when(userRepository.saveAndFlush(any())).thenReturn(user);
-        doThrow(new CustomException("device error", ErrorCode.AlreadyExists))
-                .when(deviceService).alreadyExist(anyString());
+        when(deviceService.registerDevice(anyString(), any(), any()))
+                .thenThrow(new CustomException("device error", ErrorCode.AlreadyExists));
 
         assertThrows(CustomException.class, () -> userService.register(vo));
         verify(userRepository).delete(any());
@@ -91,7 +91,6 @@ class UserServiceTests {
         when(userRepository.getByPhone(anyString())).thenReturn(null);
         when(passwordEncoder.encode("123")).thenReturn("encoded");
         when(userRepository.saveAndFlush(any())).thenReturn(user);
-        doNothing().when(deviceService).alreadyExist(anyString());
         when(deviceService.registerDevice(anyString(), any(), any())).thenReturn(new Device());
 
         userService.register(vo);
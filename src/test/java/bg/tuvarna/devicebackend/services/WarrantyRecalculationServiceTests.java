@@ -0,0 +1,151 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.WarrantyRecalculationVO;
+import bg.tuvarna.devicebackend.models.enums.JobStatus;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class WarrantyRecalculationServiceTests {
+
+    @MockBean
+    private DeviceRepository deviceRepository;
+
+    @MockBean
+    private PassportRepository passportRepository;
+
+    @MockBean
+    private DeviceSummaryCache deviceSummaryCache;
+
+    private WarrantyRecalculationService warrantyRecalculationService;
+
+    @BeforeEach
+    void setup() {
+        warrantyRecalculationService = new WarrantyRecalculationService(
+                deviceRepository, passportRepository, deviceSummaryCache
+        );
+        when(passportRepository.findWarrantyMonthsById(1L)).thenReturn(Optional.of(24));
+    }
+
+    @Test
+    void recalculate_ShouldUpdateEachPurchaseDateAndKeepRegisteredBonus() {
+        LocalDate first = LocalDate.of(2024, 1, 15);
+        LocalDate second = LocalDate.of(2024, 3, 1);
+        when(deviceRepository.findPurchaseDatesByPassportId(1L)).thenReturn(List.of(first, second));
+        when(deviceRepository.findSerialNumbersByPurchaseDate(eq(1L), any(), eq(""), any()))
+                .thenReturn(List.of("A-1", "A-5"));
+        when(deviceRepository.updateWarrantyOfAnonymousDevices(anyLong(), any(), any(), any(), anyInt(), any())).thenReturn(2);
+        when(deviceRepository.updateWarrantyOfRegisteredDevices(anyLong(), any(), any(), any(), anyInt(), any())).thenReturn(3);
+
+        warrantyRecalculationService.recalculate(warrantyRecalculationService.start(1L, 24));
+
+        verify(deviceRepository).updateWarrantyOfAnonymousDevices(1L, first, "", "A-5", 24, LocalDate.of(2026, 1, 15));
+        verify(deviceRepository).updateWarrantyOfRegisteredDevices(1L, first, "", "A-5", 24, LocalDate.of(2027, 1, 15));
+        verify(deviceRepository).updateWarrantyOfAnonymousDevices(1L, second, "", "A-5", 24, LocalDate.of(2026, 3, 1));
+        verify(deviceRepository).updateWarrantyOfRegisteredDevices(1L, second, "", "A-5", 24, LocalDate.of(2027, 3, 1));
+
+        WarrantyRecalculationVO progress = warrantyRecalculationService.getProgress(1L);
+        assertEquals(JobStatus.COMPLETED, progress.status());
+        assertEquals(2, progress.processedPurchaseDates());
+        assertEquals(2, progress.totalPurchaseDates());
+        assertEquals(10, progress.updatedDevices());
+    }
+
+    @Test
+    void recalculate_ShouldWalkSerialNumbersInChunks() {
+        LocalDate purchaseDate = LocalDate.of(2024, 1, 15);
+        List<String> full = IntStream.rangeClosed(1, 1000).mapToObj("A-%04d"::formatted).toList();
+        when(deviceRepository.findPurchaseDatesByPassportId(1L)).thenReturn(List.of(purchaseDate));
+        when(deviceRepository.findSerialNumbersByPurchaseDate(eq(1L), eq(purchaseDate), eq(""), any())).thenReturn(full);
+        when(deviceRepository.findSerialNumbersByPurchaseDate(eq(1L), eq(purchaseDate), eq("A-1000"), any()))
+                .thenReturn(List.of("A-1001"));
+
+        warrantyRecalculationService.recalculate(warrantyRecalculationService.start(1L, 24));
+
+        verify(deviceRepository).updateWarrantyOfAnonymousDevices(1L, purchaseDate, "", "A-1000", 24, LocalDate.of(2026, 1, 15));
+        verify(deviceRepository).updateWarrantyOfAnonymousDevices(1L, purchaseDate, "A-1000", "A-1001", 24, LocalDate.of(2026, 1, 15));
+        verify(deviceRepository, never()).findSerialNumbersByPurchaseDate(eq(1L), eq(purchaseDate), eq("A-1001"), any());
+        assertEquals(JobStatus.COMPLETED, warrantyRecalculationService.getProgress(1L).status());
+    }
+
+    @Test
+    void recalculate_ShouldReportFailure() {
+        when(deviceRepository.findPurchaseDatesByPassportId(1L)).thenReturn(List.of(LocalDate.of(2024, 1, 15)));
+        when(deviceRepository.findSerialNumbersByPurchaseDate(anyLong(), any(), any(), any())).thenReturn(List.of("A-1"));
+        when(deviceRepository.updateWarrantyOfAnonymousDevices(anyLong(), any(), any(), any(), anyInt(), any()))
+                .thenThrow(new RuntimeException("boom"));
+
+        warrantyRecalculationService.recalculate(warrantyRecalculationService.start(1L, 24));
+
+        assertEquals(JobStatus.FAILED, warrantyRecalculationService.getProgress(1L).status());
+    }
+
+    @Test
+    void recalculate_ShouldLeaveTheWorkToTheLaterSave_WhenJobsOverlap() throws InterruptedException {
+        LocalDate purchaseDate = LocalDate.of(2024, 1, 15);
+        CountDownLatch laterJobDone = new CountDownLatch(1);
+        when(passportRepository.findWarrantyMonthsById(1L)).thenReturn(Optional.of(36));
+        when(deviceRepository.findPurchaseDatesByPassportId(1L)).thenAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals("earlier-job")) {
+                laterJobDone.await(5, TimeUnit.SECONDS);
+            }
+            return List.of(purchaseDate);
+        });
+        when(deviceRepository.findSerialNumbersByPurchaseDate(eq(1L), eq(purchaseDate), eq(""), any()))
+                .thenReturn(List.of("A-1"));
+        when(deviceRepository.updateWarrantyOfAnonymousDevices(anyLong(), any(), any(), any(), anyInt(), any())).thenReturn(1);
+
+        WarrantyRecalculationVO earlier = warrantyRecalculationService.start(1L, 24);
+        WarrantyRecalculationVO later = warrantyRecalculationService.start(1L, 36);
+
+        // The earlier job is picked up first but its query is slower, so the later job runs to the end before it.
+        Thread earlierJob = new Thread(() -> warrantyRecalculationService.recalculate(earlier), "earlier-job");
+        earlierJob.start();
+        warrantyRecalculationService.recalculate(later);
+        laterJobDone.countDown();
+        earlierJob.join(5_000);
+
+        verify(deviceRepository).updateWarrantyOfAnonymousDevices(
+                1L, purchaseDate, "", "A-1", 36, LocalDate.of(2027, 1, 15)
+        );
+        verify(deviceRepository, never()).updateWarrantyOfAnonymousDevices(anyLong(), any(), any(), any(), eq(24), any());
+
+        WarrantyRecalculationVO progress = warrantyRecalculationService.getProgress(1L);
+        assertEquals(later.jobId(), progress.jobId());
+        assertEquals(JobStatus.COMPLETED, progress.status());
+        assertEquals(1, progress.updatedDevices());
+    }
+
+    @Test
+    void recalculate_ShouldStopAsSuperseded_WhenWarrantyChangedMeanwhile() {
+        when(passportRepository.findWarrantyMonthsById(1L)).thenReturn(Optional.of(36));
+        when(deviceRepository.findPurchaseDatesByPassportId(1L)).thenReturn(List.of(LocalDate.of(2024, 1, 15)));
+
+        warrantyRecalculationService.recalculate(warrantyRecalculationService.start(1L, 24));
+
+        verify(deviceRepository, never()).findSerialNumbersByPurchaseDate(anyLong(), any(), any(), any());
+        assertEquals(JobStatus.SUPERSEDED, warrantyRecalculationService.getProgress(1L).status());
+    }
+
+    @Test
+    void getProgress_ShouldThrow_WhenNoJob() {
+        CustomException ex = assertThrows(CustomException.class, () -> warrantyRecalculationService.getProgress(5L));
+        assertEquals(ErrorCode.EntityNotFound, ex.getErrorCode());
+    }
+}
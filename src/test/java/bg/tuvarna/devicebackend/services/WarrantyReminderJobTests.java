@@ -0,0 +1,41 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.ExpiringWarrantyVO;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WarrantyReminderJobTests {
+
+    private final DeviceRepository deviceRepository = mock(DeviceRepository.class);
+    private final WarrantyReminderSink sink = mock(WarrantyReminderSink.class);
+
+    @Test
+    void run_ShouldPublishWindowInChunksContinuingAfterLastKey() {
+        LocalDate expiration = LocalDate.now().plusDays(3);
+        ExpiringWarrantyVO first = warranty("AB1", expiration);
+        ExpiringWarrantyVO second = warranty("AB2", expiration);
+        ExpiringWarrantyVO third = warranty("AB3", expiration);
+
+        when(deviceRepository.findExpiringWarranties(any(), any(), any(), eq(""), eq(Limit.of(2))))
+                .thenReturn(List.of(first, second));
+        when(deviceRepository.findExpiringWarranties(any(), any(), eq(expiration), eq("AB2"), eq(Limit.of(2))))
+                .thenReturn(List.of(third));
+
+        new WarrantyReminderJob(deviceRepository, sink, 30, 2).run();
+
+        verify(sink).publish(List.of(first, second));
+        verify(sink).publish(List.of(third));
+        verify(deviceRepository, times(2)).findExpiringWarranties(any(), any(), any(), anyString(), any());
+    }
+
+    private static ExpiringWarrantyVO warranty(String serialNumber, LocalDate expiration) {
+        return new ExpiringWarrantyVO(serialNumber, expiration, null, null, null, "Passport", "Model");
+    }
+}
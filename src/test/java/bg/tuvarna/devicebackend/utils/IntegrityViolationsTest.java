@@ -0,0 +1,49 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntegrityViolationsTest {
+
+    @Test
+    void isDuplicateKey_ShouldMatchUniqueViolation() {
+        DataIntegrityViolationException e = violation(new SQLException("duplicate key", "23505"));
+
+        assertTrue(IntegrityViolations.isDuplicateKey(e));
+        assertFalse(IntegrityViolations.isMissingParent(e));
+    }
+
+    @Test
+    void isMissingParent_ShouldMatchPostgresAndH2States() {
+        assertTrue(IntegrityViolations.isMissingParent(violation(new SQLException("fk", "23503"))));
+        assertTrue(IntegrityViolations.isMissingParent(violation(new SQLException("fk", "23506"))));
+        assertFalse(IntegrityViolations.isDuplicateKey(violation(new SQLException("fk", "23503"))));
+    }
+
+    @Test
+    void isMissingParent_ShouldLookAtChainedBatchExceptions() {
+        BatchUpdateException batch = new BatchUpdateException("batch failed", "23000", new int[0]);
+        batch.setNextException(new SQLException("fk", "23503"));
+
+        assertTrue(IntegrityViolations.isMissingParent(violation(batch)));
+    }
+
+    @Test
+    void violates_ShouldMatchConstraintNameInMessage() {
+        DataIntegrityViolationException e = violation(new SQLException(
+                "ERROR: conflicting key value violates exclusion constraint \"passports_serial_range_excl\"", "23P01"
+        ));
+
+        assertTrue(IntegrityViolations.violates(e, "passports_serial_range_excl"));
+        assertFalse(IntegrityViolations.violates(e, "devices_pkey"));
+    }
+
+    private static DataIntegrityViolationException violation(SQLException cause) {
+        return new DataIntegrityViolationException("could not execute statement", cause);
+    }
+}
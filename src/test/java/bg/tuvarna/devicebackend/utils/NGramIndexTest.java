@@ -0,0 +1,80 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NGramIndexTest {
+
+    @Test
+    void searchKeys_ShouldMatchSubstringsCaseInsensitive() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("AB100", "AB100\nIvan Petrov", -1, -1);
+        index.put("AB200", "AB200\nMaria Ivanova", -1, -1);
+        index.put("CD300", "CD300", -1, -1);
+
+        assertThat(index.searchKeys("ivan", List.of())).containsExactlyInAnyOrder("AB100", "AB200");
+        assertThat(index.searchKeys("PETROV", List.of())).containsExactly("AB100");
+        assertThat(index.searchKeys("b2", List.of())).containsExactly("AB200");
+        assertThat(index.searchKeys("vanp", List.of())).isEmpty();
+    }
+
+    @Test
+    void searchKeys_ShouldMatchOneAndTwoCharacterTerms() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("AB100", "AB100", -1, -1);
+        index.put("CD7", "CD7", -1, -1);
+        index.put("Z", "z", -1, -1);
+
+        assertThat(index.searchKeys("b1", List.of())).containsExactly("AB100");
+        assertThat(index.searchKeys("7", List.of())).containsExactly("CD7");
+        assertThat(index.searchKeys("Z", List.of())).containsExactly("Z");
+        assertThat(index.searchKeys("0", List.of())).containsExactly("AB100");
+        assertThat(index.searchKeys("x", List.of())).isEmpty();
+        assertThat(index.searchKeys("", List.of())).hasSize(3);
+    }
+
+    @Test
+    void searchKeys_ShouldNotReturnFalsePositivesFromSharedTrigrams() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("X", "abcxbcd", -1, -1);
+
+        assertThat(index.searchKeys("abcd", List.of())).isEmpty();
+    }
+
+    @Test
+    void put_ShouldReplacePreviousTextOfKey() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("AB100", "AB100\nIvan", -1, -1);
+        index.put("AB100", "AB100\nGeorgi", -1, -1);
+
+        assertThat(index.searchKeys("ivan", List.of())).isEmpty();
+        assertThat(index.searchKeys("georgi", List.of())).containsExactly("AB100");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remove_ShouldHideDocument() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("AB100", "AB100", 7, -1);
+        index.remove("AB100");
+
+        assertThat(index.searchKeys("ab1", List.of())).isEmpty();
+        assertThat(index.searchKeys("zzz", List.of(7L))).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void search_ShouldIncludeMatchingGroupsAndReturnPayloads() {
+        NGramIndex<String> index = new NGramIndex<>();
+        index.put("AB100", "AB100", 7, 1);
+        index.put("AB200", "AB200", 8, 2);
+        index.put("AB300", "AB300", 7, -1);
+
+        assertThat(index.searchKeys("zzz", List.of(7L))).containsExactlyInAnyOrder("AB100", "AB300");
+        assertThat(index.searchPayloads("ab2", List.of(7L))).isEqualTo(Set.of(1L, 2L));
+    }
+}
@@ -0,0 +1,38 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialNumberParserTest {
+
+    @Test
+    void parse_ShouldReturnSuffix_WhenPrefixMatches() {
+        assertEquals(150, SerialNumberParser.parse("AB150", "AB"));
+        assertEquals(7, SerialNumberParser.parse("AB007", "AB"));
+        assertEquals(0, SerialNumberParser.parse("AB0", "AB"));
+    }
+
+    @Test
+    void parse_ShouldReturnInvalid_WhenPrefixDoesNotMatch() {
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("CD150", "AB"));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse(null, "AB"));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("AB150", null));
+    }
+
+    @Test
+    void parse_ShouldReturnInvalid_WhenSuffixIsNotNumeric() {
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("AB", "AB"));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("ABX", "AB"));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("AB1X", "AB"));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("AB-1", "AB"));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parse("AB+1", "AB"));
+    }
+
+    @Test
+    void parseSuffix_ShouldReturnInvalid_OnOverflow() {
+        assertEquals(Integer.MAX_VALUE, SerialNumberParser.parseSuffix("AB2147483647", 2));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parseSuffix("AB2147483648", 2));
+        assertEquals(SerialNumberParser.INVALID, SerialNumberParser.parseSuffix("AB99999999999", 2));
+    }
+}
@@ -0,0 +1,89 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TtlCacheTest {
+
+    @Test
+    void get_ShouldLoadOnceAndCountHits() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("A", key -> key + loads.incrementAndGet());
+        String value = cache.get("A", key -> key + loads.incrementAndGet());
+
+        assertThat(value).isEqualTo("A1");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void get_ShouldReloadExpiredEntries() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("A", key -> key + loads.incrementAndGet());
+        String value = cache.get("A", key -> key + loads.incrementAndGet());
+
+        assertThat(value).isEqualTo("A2");
+        assertThat(cache.misses()).isEqualTo(2);
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void get_ShouldEvictLeastRecentlyUsedEntryWhenFull() {
+        TtlCache<String, String> cache = new TtlCache<>(2, Duration.ofMinutes(1));
+        cache.get("A", key -> key);
+        cache.get("B", key -> key);
+        cache.get("A", key -> key);
+        cache.get("C", key -> key);
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("A", key -> key + loads.incrementAndGet());
+        cache.get("B", key -> key + loads.incrementAndGet());
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+        cache.get("A", key -> "old");
+
+        cache.invalidate("A");
+
+        assertThat(cache.get("A", key -> "new")).isEqualTo("new");
+    }
+
+    @Test
+    void get_ShouldNotStoreValueLoadedDuringInvalidation() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+
+        String stale = cache.get("A", key -> {
+            cache.invalidate("A");
+            return "stale";
+        });
+
+        assertThat(stale).isEqualTo("stale");
+        assertThat(cache.get("A", key -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void get_ShouldExpireEachValueAfterItsOwnTtl() {
+        TtlCache<String, String> cache = new TtlCache<>(
+                10, value -> value.isEmpty() ? Duration.ZERO : Duration.ofMinutes(1)
+        );
+        cache.get("A", key -> "");
+        cache.get("B", key -> key);
+
+        assertThat(cache.get("A", key -> "loaded")).isEqualTo("loaded");
+        assertThat(cache.get("B", key -> "reloaded")).isEqualTo("B");
+    }
+}